@@ -0,0 +1,244 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.zmpp.iff.FormChunk;
+import org.zmpp.iff.WritableFormChunk;
+import org.zmpp.io.IOSystem;
+import org.zmpp.io.InputStream;
+import org.zmpp.io.OutputStream;
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineFactory;
+import org.zmpp.vm.SaveGameDataStore;
+import org.zmpp.vm.ScreenModel;
+import org.zmpp.vm.StatusLine;
+import org.zmpp.vm.TextCursor;
+
+/**
+ * A machine factory for the benchmarks. The screen discards all output and
+ * the keyboard types the same command over and over again, so a story can be
+ * run without user interface for as long as the benchmark needs.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BenchmarkMachineFactory extends MachineFactory<Object> {
+
+    private final NullDevices devices;
+
+    /**
+     * Constructor.
+     *
+     * @param storydata the story file data
+     * @param command the command that is typed whenever the story reads input
+     */
+    public BenchmarkMachineFactory(final byte[] storydata,
+            final String command) {
+
+        super(storydata, null);
+        devices = new NullDevices(command + "\r");
+    }
+
+    /**
+     * Builds and starts a machine for the specified story.
+     *
+     * @param storydata the story file data
+     * @param command the command that is typed whenever the story reads input
+     * @return the running machine
+     */
+    public static Machine start(final byte[] storydata, final String command) {
+
+        try {
+            final Machine machine
+                    = new BenchmarkMachineFactory(storydata, command).buildMachine();
+            machine.start();
+            return machine;
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Restarts the machine and runs it until the story quits.
+     *
+     * @param machine the machine
+     * @return the number of dispatched instructions
+     */
+    public static int runToCompletion(final Machine machine) {
+
+        machine.restart();
+        machine.start();
+        final Cpu cpu = machine.getCpu();
+        int steps = 0;
+        while (cpu.isRunning()) {
+
+            cpu.nextStep().execute();
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected Object initUI(final Machine machine) {
+
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object getUI() {
+
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void reportInvalidStory() {
+
+        throw new IllegalArgumentException("invalid story file");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected IOSystem getIOSystem() {
+
+        return devices;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected InputStream getKeyboardInputStream() {
+
+        return devices;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected StatusLine getStatusLine() {
+
+        return devices;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected ScreenModel getScreenModel() {
+
+        return devices;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected SaveGameDataStore getSaveGameDataStore() {
+
+        return devices;
+    }
+
+    /**
+     * The devices of a benchmark machine, they do nothing but typing the
+     * command.
+     */
+    private static class NullDevices implements ScreenModel, StatusLine,
+            InputStream, IOSystem, SaveGameDataStore, OutputStream,
+            TextCursor {
+
+        private final String input;
+        private int position;
+        private boolean selected = true;
+
+        NullDevices(final String input) {
+            this.input = input;
+        }
+
+        // ScreenModel
+        public void reset() { }
+        public void splitWindow(final int linesUpperWindow) { }
+        public void setWindow(final int window) { }
+        public void setTextStyle(final int style) { }
+        public void setBufferMode(final boolean flag) { }
+        public void eraseLine(final int value) { }
+        public void eraseWindow(final int window) { }
+        public void setTextCursor(final int line, final int column,
+                final int window) { }
+        public TextCursor getTextCursor() { return this; }
+        public void setPaging(final boolean flag) { }
+        public int setFont(final int fontnumber) { return 1; }
+        public void setBackgroundColor(final int colornumber,
+                final int window) { }
+        public void setForegroundColor(final int colornumber,
+                final int window) { }
+        public void redraw() { }
+        public void displayCursor(final boolean flag) { }
+        public OutputStream getOutputStream() { return this; }
+        public void waitInitialized() { }
+        public void resetPagers() { }
+
+        // StatusLine
+        public void updateStatusScore(final String objectName, final int score,
+                final int steps) { }
+        public void updateStatusTime(final String objectName, final int hours,
+                final int minutes) { }
+
+        // InputStream
+        public void cancelInput() { }
+        public char getZsciiChar(final boolean flushBeforeGet) {
+            final char c = input.charAt(position);
+            position = (position + 1) % input.length();
+            return c;
+        }
+        public void close() { }
+
+        // IOSystem
+        public Writer getTranscriptWriter() { return null; }
+        public Reader getInputStreamReader() { return null; }
+
+        // SaveGameDataStore
+        public boolean saveFormChunk(final WritableFormChunk formchunk) {
+            return false;
+        }
+        public FormChunk retrieveFormChunk() { return null; }
+
+        // OutputStream
+        public void print(final char zchar, final boolean isInput) { }
+        public void deletePrevious(final char zchar) { }
+        public void flush() { }
+        public void select(final boolean flag) { selected = flag; }
+        public boolean isSelected() { return selected; }
+
+        // TextCursor
+        public int getLine() { return 1; }
+        public int getColumn() { return 1; }
+        public void setLine(final int line) { }
+        public void setColumn(final int column) { }
+        public void setPosition(final int line, final int column) { }
+    }
+}
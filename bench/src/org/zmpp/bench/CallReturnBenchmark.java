@@ -0,0 +1,72 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.vm.Machine;
+
+/**
+ * Measures the cost of routine calls. Every operation is a call_vs with two
+ * arguments, the addition in the called routine, the return and the loop
+ * test of the caller.
+ *
+ * @author agent
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CallReturnBenchmark {
+
+    private Machine machine;
+
+    @Setup
+    public void setUp() {
+
+        machine = BenchmarkMachineFactory.start(
+                SyntheticStory.createCallStory(), "");
+    }
+
+    /**
+     * Runs the call story, one operation is one call and return.
+     *
+     * @return the number of dispatched instructions
+     */
+    @Benchmark
+    @OperationsPerInvocation(SyntheticStory.CALLS)
+    public int callReturn() {
+
+        return BenchmarkMachineFactory.runToCompletion(machine);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.ObjectTree;
+
+/**
+ * Measures the object tree operations, once executed by the story and once
+ * called directly on the ObjectTree, which excludes the instruction
+ * dispatch.
+ *
+ * @author agent
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjectTreeBenchmark {
+
+    private static final int OPERATIONS_PER_CALL = 9;
+
+    private Machine machine;
+    private ObjectTree objectTree;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+
+        machine = BenchmarkMachineFactory.start(
+                SyntheticStory.createObjectTreeStory(), "");
+
+        // restarting a machine replaces its object tree, so the direct
+        // operations get a machine of their own
+        objectTree = BenchmarkMachineFactory.start(
+                SyntheticStory.createObjectTreeStory(), "").getGameData()
+                .getObjectTree();
+    }
+
+    /**
+     * Runs the object tree story, one operation is one object tree
+     * instruction.
+     *
+     * @return the number of dispatched instructions
+     */
+    @Benchmark
+    @OperationsPerInvocation(SyntheticStory.OBJECT_OPERATIONS)
+    public int storyOperations() {
+
+        return BenchmarkMachineFactory.runToCompletion(machine);
+    }
+
+    /**
+     * Performs the operations of a single story iteration on the object tree.
+     *
+     * @return a value that depends on all results
+     */
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS_PER_CALL)
+    public int treeOperations() {
+
+        final int obj = SyntheticStory.CONTAINER + 1
+                + (counter++ & (SyntheticStory.NUM_CHILDREN - 1));
+        objectTree.insertObject(SyntheticStory.CONTAINER, obj);
+        int result = objectTree.getChild(SyntheticStory.CONTAINER);
+        result += objectTree.getSibling(result);
+        result += objectTree.getParent(obj);
+        objectTree.setAttribute(obj, SyntheticStory.ATTRIBUTE);
+        if (objectTree.isAttributeSet(obj, SyntheticStory.ATTRIBUTE)) {
+            result++;
+        }
+        objectTree.clearAttribute(obj, SyntheticStory.ATTRIBUTE);
+        result += objectTree.getProperty(obj, SyntheticStory.PROPERTY);
+        objectTree.setProperty(obj, SyntheticStory.PROPERTY, counter);
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Machine;
+import org.zmpp.vmutil.FileUtils;
+
+/**
+ * Measures the dispatched instructions per second of a real story file,
+ * which answers every input request with the same command. The story is
+ * restarted whenever it quits. The story file and the command are
+ * benchmark parameters, the Ant target only runs this benchmark if a story
+ * file is specified.
+ *
+ * @author agent
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StoryFileBenchmark {
+
+    private static final int STEPS = 100000;
+
+    @Param("")
+    public String story;
+
+    @Param("look")
+    public String command;
+
+    private Machine machine;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        final byte[] storydata = FileUtils.readFileBytes(new File(story));
+        if (storydata == null) {
+            throw new IOException("can not read story file " + story);
+        }
+        machine = BenchmarkMachineFactory.start(storydata, command);
+    }
+
+    /**
+     * Executes a fixed number of instructions.
+     *
+     * @return the program counter
+     */
+    @Benchmark
+    @OperationsPerInvocation(STEPS)
+    public int play() {
+
+        final Cpu cpu = machine.getCpu();
+        for (int i = 0; i < STEPS; i++) {
+
+            if (!cpu.isRunning()) {
+
+                machine.restart();
+                machine.start();
+            }
+            cpu.nextStep().execute();
+        }
+        return cpu.getProgramCounter();
+    }
+}
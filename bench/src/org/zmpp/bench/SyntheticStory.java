@@ -0,0 +1,383 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates small version 5 story files for the benchmarks. Each story
+ * calls a single workload routine, which runs a loop a fixed number of
+ * times, and quits. The number of instructions a story executes is known in
+ * advance, so the benchmarks can report instructions per second without
+ * counting them.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class SyntheticStory {
+
+    /**
+     * The number of loop iterations of every workload.
+     */
+    public static final int ITERATIONS = 20000;
+
+    /**
+     * The instructions outside of the workload loop: call_vn, ret and quit.
+     */
+    private static final int OVERHEAD = 3;
+
+    /**
+     * The number of instructions executed by the arithmetic story.
+     */
+    public static final int ARITHMETIC_INSTRUCTIONS = 7 * ITERATIONS + OVERHEAD;
+
+    /**
+     * The number of routine calls executed by the call story.
+     */
+    public static final int CALLS = ITERATIONS;
+
+    /**
+     * The number of object tree operations executed by the object tree story.
+     */
+    public static final int OBJECT_OPERATIONS = 9 * ITERATIONS;
+
+    /**
+     * The object that contains all other objects.
+     */
+    public static final int CONTAINER = 1;
+
+    /**
+     * The number of objects inside the container.
+     */
+    public static final int NUM_CHILDREN = 8;
+
+    /**
+     * The property that every object defines.
+     */
+    public static final int PROPERTY = 10;
+
+    /**
+     * The attribute the object tree story sets and clears.
+     */
+    public static final int ATTRIBUTE = 5;
+
+    private static final int ABBREVIATIONS = 0x40;
+    private static final int OBJECT_TABLE = 0x100;
+    private static final int GLOBALS = 0x240;
+    private static final int ARRAY = 0x420;
+    private static final int STATICS = 0x520;
+    private static final int CODE = 0x528;
+
+    private static final int NUM_DEFAULT_PROPERTIES = 63;
+    private static final int OBJECT_ENTRY_SIZE = 14;
+
+    // Variable operands are marked by a flag above the 16 bit range
+    private static final int VARIABLE = 0x10000;
+    private static final int L0 = VARIABLE | 1;
+    private static final int L1 = VARIABLE | 2;
+    private static final int L2 = VARIABLE | 3;
+    private static final int L3 = VARIABLE | 4;
+
+    private static final int TYPE_LARGE = 0;
+    private static final int TYPE_SMALL = 1;
+    private static final int TYPE_VARIABLE = 2;
+    private static final int TYPE_OMITTED = 3;
+
+    private final byte[] data = new byte[0x10000];
+    private int pc = CODE;
+    private final Map<String, Integer> labels = new HashMap<String, Integer>();
+    private final List<Integer> branchOffsets = new ArrayList<Integer>();
+    private final List<String> branchLabels = new ArrayList<String>();
+
+    private SyntheticStory() { }
+
+    /**
+     * Generates a story that executes a loop of arithmetic and memory
+     * instructions, ARITHMETIC_INSTRUCTIONS instructions in total.
+     *
+     * @return the story file data
+     */
+    public static byte[] createArithmeticStory() {
+
+        final SyntheticStory story = new SyntheticStory();
+        final int routine = story.startRoutine(4);
+        story.label("loop");
+        story.op2(0x14, L2, L1).store(L2);              // add
+        story.op2(0x16, L1, 3).store(L3);               // mul
+        story.op2(0x09, L3, 0xff).store(L3);            // and
+        story.var(0x02, ARRAY, L3, L1);                 // storeb
+        story.op2(0x10, ARRAY, L3).store(L3);           // loadb
+        story.op2(0x15, L2, L3).store(L2);              // sub
+        story.op2(0x05, 2, ITERATIONS - 1).branch("loop", false); // inc_chk
+        story.op1(0x0b, L2);                            // ret
+        return story.finish(routine);
+    }
+
+    /**
+     * Generates a story that calls a routine with two arguments CALLS times.
+     * Each iteration executes call_vs, add, ret and inc_chk.
+     *
+     * @return the story file data
+     */
+    public static byte[] createCallStory() {
+
+        final SyntheticStory story = new SyntheticStory();
+        final int callee = story.startRoutine(2);
+        story.op2(0x14, L0, L1).store(L0);              // add
+        story.op1(0x0b, L0);                            // ret
+
+        final int routine = story.startRoutine(4);
+        story.label("loop");
+        story.var(0x00, story.packed(callee), L1, L2).store(L2); // call_vs
+        story.op2(0x05, 2, ITERATIONS - 1).branch("loop", false); // inc_chk
+        story.op1(0x0b, L2);                            // ret
+        return story.finish(routine);
+    }
+
+    /**
+     * Generates a story that moves the container's children around and
+     * reads and writes their attributes and properties. Each iteration
+     * executes 9 object tree instructions, the branches of get_child,
+     * get_sibling and test_attr continue with the next instruction either
+     * way.
+     *
+     * @return the story file data
+     */
+    public static byte[] createObjectTreeStory() {
+
+        final SyntheticStory story = new SyntheticStory();
+        final int routine = story.startRoutine(4);
+        story.label("loop");
+        story.op2(0x09, L1, NUM_CHILDREN - 1).store(L2);         // and
+        story.op2(0x14, L2, CONTAINER + 1).store(L2);            // add
+        story.op2(0x0e, L2, CONTAINER);                          // insert_obj
+        story.op1(0x02, CONTAINER).store(L3).branch("child", true); // get_child
+        story.label("child");
+        story.op1(0x01, L3).store(L3).branch("sibling", true);   // get_sibling
+        story.label("sibling");
+        story.op1(0x03, L2).store(L3);                           // get_parent
+        story.op2(0x0b, L2, ATTRIBUTE);                          // set_attr
+        story.op2(0x0a, L2, ATTRIBUTE).branch("attr", true);     // test_attr
+        story.label("attr");
+        story.op2(0x0c, L2, ATTRIBUTE);                          // clear_attr
+        story.op2(0x11, L2, PROPERTY).store(L3);                 // get_prop
+        story.var(0x03, L2, PROPERTY, L1);                       // put_prop
+        story.op2(0x05, 2, ITERATIONS - 1).branch("loop", false); // inc_chk
+        story.op1(0x0b, L3);                                     // ret
+        return story.finish(routine);
+    }
+
+  // ***********************************************************************
+    // ****** Code generation
+    // ******************************************
+    private int startRoutine(final int numLocals) {
+
+        while (pc % 4 != 0) {
+            pc++;
+        }
+        final int address = pc;
+        data[pc++] = (byte) numLocals;
+        return address;
+    }
+
+    private void label(final String name) {
+
+        labels.put(name, pc);
+    }
+
+    private int packed(final int routineAddress) {
+
+        return routineAddress / 4;
+    }
+
+    private SyntheticStory op1(final int opcode, final int operand) {
+
+        data[pc++] = (byte) (0x80 | (getType(operand) << 4) | opcode);
+        writeOperand(operand);
+        return this;
+    }
+
+    private SyntheticStory op2(final int opcode, final int operand1,
+            final int operand2) {
+
+        final int type1 = getType(operand1);
+        final int type2 = getType(operand2);
+        if (type1 == TYPE_LARGE || type2 == TYPE_LARGE) {
+
+            data[pc++] = (byte) (0xc0 | opcode);
+            data[pc++] = (byte) ((type1 << 6) | (type2 << 4)
+                    | (TYPE_OMITTED << 2) | TYPE_OMITTED);
+        } else {
+
+            data[pc++] = (byte) (((type1 == TYPE_VARIABLE) ? 0x40 : 0)
+                    | ((type2 == TYPE_VARIABLE) ? 0x20 : 0) | opcode);
+        }
+        writeOperand(operand1);
+        writeOperand(operand2);
+        return this;
+    }
+
+    private SyntheticStory var(final int opcode, final int... operands) {
+
+        data[pc++] = (byte) (0xe0 | opcode);
+        int types = 0;
+        for (int i = 0; i < 4; i++) {
+
+            types = (types << 2)
+                    | ((i < operands.length) ? getType(operands[i])
+                    : TYPE_OMITTED);
+        }
+        data[pc++] = (byte) types;
+        for (int operand : operands) {
+            writeOperand(operand);
+        }
+        return this;
+    }
+
+    private SyntheticStory store(final int variable) {
+
+        data[pc++] = (byte) (variable & 0xff);
+        return this;
+    }
+
+    /**
+     * Appends a two byte branch to the specified label.
+     */
+    private SyntheticStory branch(final String label,
+            final boolean branchOnTrue) {
+
+        data[pc] = (byte) (branchOnTrue ? 0x80 : 0);
+        branchOffsets.add(pc);
+        branchLabels.add(label);
+        pc += 2;
+        return this;
+    }
+
+    private int getType(final int operand) {
+
+        if ((operand & VARIABLE) != 0) {
+            return TYPE_VARIABLE;
+        }
+        return (operand >= 0 && operand <= 0xff) ? TYPE_SMALL : TYPE_LARGE;
+    }
+
+    private void writeOperand(final int operand) {
+
+        final int type = getType(operand);
+        if (type == TYPE_LARGE) {
+
+            writeWord(pc, operand);
+            pc += 2;
+        } else {
+            data[pc++] = (byte) (operand & 0xff);
+        }
+    }
+
+    private void writeWord(final int address, final int value) {
+
+        data[address] = (byte) ((value >> 8) & 0xff);
+        data[address + 1] = (byte) (value & 0xff);
+    }
+
+    /**
+     * Resolves the branches, writes the main program, which calls the
+     * workload routine and quits, and lays out the rest of the story file.
+     *
+     * @param routine the workload routine
+     * @return the story file data
+     */
+    private byte[] finish(final int routine) {
+
+        for (int i = 0; i < branchOffsets.size(); i++) {
+
+            final int address = branchOffsets.get(i);
+            final int offset = labels.get(branchLabels.get(i)) - (address + 2) + 2;
+            data[address] |= (byte) ((offset >> 8) & 0x3f);
+            data[address + 1] = (byte) (offset & 0xff);
+        }
+        final int programStart = pc;
+        var(0x19, packed(routine));                     // call_vn
+        data[pc++] = (byte) 0xba;                       // quit
+        while (pc % 4 != 0) {
+            pc++;
+        }
+        writeHeader(programStart);
+        writeObjectTable();
+
+        // Dictionary without separators and words
+        data[STATICS + 1] = 9;
+
+        final byte[] story = Arrays.copyOf(data, pc);
+        int checksum = 0;
+        for (int i = 0x40; i < story.length; i++) {
+            checksum += story[i] & 0xff;
+        }
+        story[0x1c] = (byte) ((checksum >> 8) & 0xff);
+        story[0x1d] = (byte) (checksum & 0xff);
+        return story;
+    }
+
+    private void writeHeader(final int programStart) {
+
+        data[0x00] = 5;
+        writeWord(0x04, CODE);
+        writeWord(0x06, programStart);
+        writeWord(0x08, STATICS);
+        writeWord(0x0a, OBJECT_TABLE);
+        writeWord(0x0c, GLOBALS);
+        writeWord(0x0e, STATICS);
+        writeWord(0x18, ABBREVIATIONS);
+        writeWord(0x1a, pc / 4);
+    }
+
+    /**
+     * Writes the object table. The container holds the objects 2 to
+     * NUM_CHILDREN + 1, each of them has a two byte property PROPERTY.
+     */
+    private void writeObjectTable() {
+
+        final int numObjects = NUM_CHILDREN + 1;
+        final int entries = OBJECT_TABLE + 2 * NUM_DEFAULT_PROPERTIES;
+        int propertyTable = entries + numObjects * OBJECT_ENTRY_SIZE;
+        for (int obj = 1; obj <= numObjects; obj++) {
+
+            final int entry = entries + (obj - 1) * OBJECT_ENTRY_SIZE;
+            if (obj == CONTAINER) {
+
+                writeWord(entry + 10, CONTAINER + 1);
+            } else {
+
+                writeWord(entry + 6, CONTAINER);
+                writeWord(entry + 8, (obj < numObjects) ? obj + 1 : 0);
+            }
+            writeWord(entry + 12, propertyTable);
+
+            // no short name, a single two byte property and the terminator
+            data[propertyTable] = 0;
+            data[propertyTable + 1] = (byte) (0x40 | PROPERTY);
+            writeWord(propertyTable + 2, obj);
+            data[propertyTable + 4] = 0;
+            propertyTable += 5;
+        }
+    }
+}
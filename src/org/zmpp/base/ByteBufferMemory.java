@@ -0,0 +1,361 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.base;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * A memory backed by a ByteBuffer, e.g. a file that is mapped into memory,
+ * so its data does not need to be copied onto the heap. The values are read
+ * in big endian byte order with absolute accesses, the position of the
+ * buffer is never changed, so any number of threads can read concurrently.
+ * Accesses outside of the buffer and writes to a read-only buffer throw a
+ * MemoryAccessException, like the other memories.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class ByteBufferMemory implements Memory {
+
+    /**
+     * The buffer, its position is 0 and its byte order big endian.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor. The memory covers the bytes between the buffer's position
+     * and its limit.
+     *
+     * @param buffer the buffer
+     */
+    public ByteBufferMemory(final ByteBuffer buffer) {
+
+        super();
+        // a view that does not depend on the caller's position and order
+        this.buffer = buffer.slice();
+    }
+
+    /**
+     * Returns the size of the memory.
+     *
+     * @return the size in bytes
+     */
+    public int getSize() {
+
+        return buffer.capacity();
+    }
+
+  // ************************************************************************
+    // ****** Read access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public long readUnsigned48(final int address) {
+
+        return ((long) readUnsignedShort(address) << 32)
+                | readUnsigned32(address + 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long readUnsigned32(final int address) {
+
+        try {
+            return buffer.getInt(address) & 0xffffffffL;
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int readUnsignedShort(final int address) {
+
+        try {
+            return buffer.getShort(address) & 0xffff;
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public short readShort(final int address) {
+
+        try {
+            return buffer.getShort(address);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public short readUnsignedByte(final int address) {
+
+        try {
+            return (short) (buffer.get(address) & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public byte readByte(final int address) {
+
+        try {
+            return buffer.get(address);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+  // ************************************************************************
+    // ****** Write access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsignedShort(final int address, final int value) {
+
+        try {
+            buffer.putShort(address, (short) value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeShort(final int address, final short value) {
+
+        try {
+            buffer.putShort(address, value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsignedByte(final int address, final short value) {
+
+        try {
+            buffer.put(address, (byte) value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeByte(final int address, final byte value) {
+
+        try {
+            buffer.put(address, value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsigned32(final int address, final long value) {
+
+        try {
+            buffer.putInt(address, (int) value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsigned48(final int address, final long value) {
+
+        try {
+            buffer.putShort(address, (short) (value >>> 32));
+            buffer.putInt(address + 2, (int) value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        } catch (ReadOnlyBufferException ex) {
+            throw readOnly(address);
+        }
+    }
+
+  // ************************************************************************
+    // ****** Bulk access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void readBytes(final int address, final byte[] dest,
+            final int offset, final int length) {
+
+        checkBounds(address, length);
+        final ByteBuffer view = buffer.duplicate();
+        view.position(address);
+        view.get(dest, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBytes(final int address, final byte[] src,
+            final int offset, final int length) {
+
+        checkWritable(address, length);
+        final ByteBuffer view = buffer.duplicate();
+        view.position(address);
+        view.put(src, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyBytes(final int srcAddress, final int destAddress,
+            final int length) {
+
+        checkBounds(srcAddress, length);
+        checkWritable(destAddress, length);
+        final ByteBuffer src = buffer.duplicate();
+        src.limit(srcAddress + length);
+        src.position(srcAddress);
+        final ByteBuffer dest = buffer.duplicate();
+        dest.position(destAddress);
+        if (srcAddress + length <= destAddress
+                || destAddress + length <= srcAddress) {
+
+            dest.put(src);
+        } else {
+
+            // the buffer does not define the result of overlapping puts
+            final byte[] data = new byte[length];
+            src.get(data);
+            dest.put(data);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fill(final int address, final byte value, final int length) {
+
+        checkWritable(address, length);
+        for (int i = 0; i < length; i++) {
+
+            buffer.put(address + i, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int mismatch(final int address, final byte[] other,
+            final int offset, final int length) {
+
+        checkBounds(address, length);
+        for (int i = 0; i < length; i++) {
+
+            if (buffer.get(address + i) != other[offset + i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+  // ************************************************************************
+    // ****** Private methods
+    // ************************************************
+    /**
+     * Checks that the specified range lies within the buffer.
+     *
+     * @param address the start address
+     * @param length the number of bytes
+     */
+    private void checkBounds(final int address, final int length) {
+
+        if (address < 0 || length < 0 || address > buffer.capacity() - length) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * Checks that the specified range lies within the buffer and that the
+     * buffer can be written.
+     *
+     * @param address the start address
+     * @param length the number of bytes
+     */
+    private void checkWritable(final int address, final int length) {
+
+        checkBounds(address, length);
+        if (buffer.isReadOnly() && length > 0) {
+            throw readOnly(address);
+        }
+    }
+
+    /**
+     * Creates the exception for an access outside of the memory.
+     *
+     * @param address the address
+     * @return the exception
+     */
+    private MemoryAccessException outOfBounds(final int address) {
+
+        return new MemoryAccessException(String.format(
+                "access outside of memory at $%05x, size $%05x", address,
+                buffer.capacity()), address);
+    }
+
+    /**
+     * Creates the exception for a write to a read-only buffer.
+     *
+     * @param address the address
+     * @return the exception
+     */
+    private MemoryAccessException readOnly(final int address) {
+
+        return new MemoryAccessException(String.format(
+                "write to read-only memory at $%05x", address), address);
+    }
+}
@@ -0,0 +1,614 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.base;
+
+import java.util.Arrays;
+
+/**
+ * A memory that shares the static and high memory of a story file with other
+ * memories of the same story. Only the dynamic memory is copied, the rest of
+ * the story file is read from the shared array.
+ *
+ * The memory is divided into the regions dynamic, static and high memory.
+ * Only the dynamic memory can be written, a write to static or high memory
+ * is reported as a MemoryAccessException, like any access outside of the
+ * story file. The checks do not cost the reads and writes of dynamic memory
+ * anything, the array bounds are checked anyway. For stories that write to
+ * static memory nevertheless, the write protection can be turned off, the
+ * shared array is then copied on the first such write, so the other memories
+ * are never affected.
+ *
+ * Writes to the dynamic memory are tracked per page, so a snapshot of the
+ * dynamic memory, e.g. for undo, only needs to copy the changed pages. If a
+ * write journal is set, every change of dynamic memory is recorded in it,
+ * without a journal, a write only pays for a null check.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class CopyOnWriteMemory implements Memory {
+
+    /**
+     * The regions of the memory map. Static memory ends at $ffff at the
+     * latest, the rest of the story file is high memory. High memory can
+     * start earlier, but since neither can be written, the overlap does not
+     * matter.
+     */
+    public enum Region {
+
+        DYNAMIC, STATIC, HIGH
+    }
+
+    /**
+     * The first address after static memory.
+     */
+    private static final int STATIC_END = 0x10000;
+
+    /**
+     * The dynamic memory copy is padded with the bytes that follow it, so a
+     * multi byte value at the end of dynamic memory can be read from a single
+     * array.
+     */
+    private static final int PADDING = 8;
+
+    /**
+     * The number of address bits covered by a page of dynamic memory.
+     */
+    public static final int PAGE_BITS = 8;
+
+    /**
+     * The number of bytes in a page of dynamic memory.
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * The size of the dynamic memory.
+     */
+    private int dynamicSize;
+
+    /**
+     * The private copy of the dynamic memory.
+     */
+    private byte[] dynamic;
+
+    /**
+     * The story file data, shared until this memory writes to it.
+     */
+    private byte[] shared;
+
+    /**
+     * True if shared is a private copy.
+     */
+    private boolean copied;
+
+    /**
+     * True if static and high memory can be written.
+     */
+    private boolean staticWritable;
+
+    /**
+     * The pages of dynamic memory that were written since the last call to
+     * clearDirtyPages().
+     */
+    private boolean[] dirtyPages;
+
+    /**
+     * The journal that records the writes to dynamic memory, null if they
+     * are not recorded.
+     */
+    private WriteJournal journal;
+
+    /**
+     * Constructor. Static and high memory are write protected.
+     *
+     * @param data the story file data, which must not be modified
+     * @param dynamicSize the size of the dynamic memory
+     */
+    public CopyOnWriteMemory(final byte[] data, final int dynamicSize) {
+
+        this(data, dynamicSize, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param data the story file data, which must not be modified
+     * @param dynamicSize the size of the dynamic memory
+     * @param staticWritable true if static and high memory can be written
+     */
+    public CopyOnWriteMemory(final byte[] data, final int dynamicSize,
+            final boolean staticWritable) {
+
+        super();
+        this.staticWritable = staticWritable;
+        this.dynamicSize = Math.min(dynamicSize, data.length);
+        this.shared = data;
+        dynamic = new byte[this.dynamicSize + PADDING];
+        System.arraycopy(data, 0, dynamic, 0,
+                Math.min(data.length, dynamic.length));
+        dirtyPages = new boolean[(this.dynamicSize + PAGE_SIZE - 1) >>> PAGE_BITS];
+    }
+
+    /**
+     * Returns the size of the dynamic memory.
+     *
+     * @return the dynamic memory size
+     */
+    public int getDynamicSize() {
+
+        return dynamicSize;
+    }
+
+    /**
+     * Returns the region of the specified address.
+     *
+     * @param address the address
+     * @return the region or null if the address is outside of the story file
+     */
+    public Region getRegion(final int address) {
+
+        if (address < 0 || address >= shared.length) {
+            return null;
+        }
+        if (address < dynamicSize) {
+            return Region.DYNAMIC;
+        }
+        return (address < STATIC_END) ? Region.STATIC : Region.HIGH;
+    }
+
+    /**
+     * Determines whether static and high memory can be written.
+     *
+     * @return true if writable, false if write protected
+     */
+    public boolean isStaticWritable() {
+
+        return staticWritable;
+    }
+
+    /**
+     * Determines whether this memory made a private copy of the shared data
+     * because it was written to.
+     *
+     * @return true if the shared data was copied
+     */
+    public boolean isCopied() {
+
+        return copied;
+    }
+
+    /**
+     * Determines whether the specified page of dynamic memory was written
+     * since the last call to clearDirtyPages(). A page that was written can
+     * still contain its previous values.
+     *
+     * @param page the page number, i.e. the address >>> PAGE_BITS
+     * @return true if the page was written
+     */
+    public boolean isDirty(final int page) {
+
+        return dirtyPages[page];
+    }
+
+    /**
+     * Marks all pages of dynamic memory as clean.
+     */
+    public void clearDirtyPages() {
+
+        Arrays.fill(dirtyPages, false);
+    }
+
+    /**
+     * Returns the journal that records the writes to dynamic memory.
+     *
+     * @return the journal or null
+     */
+    public WriteJournal getJournal() {
+
+        return journal;
+    }
+
+    /**
+     * Sets the journal that records the writes to dynamic memory.
+     *
+     * @param journal the journal or null to stop recording
+     */
+    public void setJournal(final WriteJournal journal) {
+
+        this.journal = journal;
+    }
+
+  // ************************************************************************
+    // ****** Read access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public long readUnsigned32(final int address) {
+
+        try {
+            final byte[] data = (address < dynamicSize) ? dynamic : shared;
+            return (data[address] & 0xff) << 24
+                    | (data[address + 1] & 0xff) << 16
+                    | (data[address + 2] & 0xff) << 8
+                    | (data[address + 3] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long readUnsigned48(final int address) {
+
+        try {
+            final byte[] data = (address < dynamicSize) ? dynamic : shared;
+            long a0 = data[address + 0] & 0xff;
+            a0 <<= 40;
+            long a1 = data[address + 1] & 0xff;
+            a1 <<= 32;
+            return a0 | a1
+                    | (data[address + 2] & 0xff) << 24
+                    | (data[address + 3] & 0xff) << 16
+                    | (data[address + 4] & 0xff) << 8
+                    | (data[address + 5] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int readUnsignedShort(final int address) {
+
+        try {
+            final byte[] data = (address < dynamicSize) ? dynamic : shared;
+            return (data[address] & 0xff) << 8 | (data[address + 1] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public short readShort(final int address) {
+
+        try {
+            final byte[] data = (address < dynamicSize) ? dynamic : shared;
+            return (short) (data[address] << 8 | (data[address + 1] & 0xff));
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public short readUnsignedByte(final int address) {
+
+        try {
+            final byte[] data = (address < dynamicSize) ? dynamic : shared;
+            return (short) (data[address] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public byte readByte(final int address) {
+
+        try {
+            return (address < dynamicSize) ? dynamic[address] : shared[address];
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+  // ************************************************************************
+    // ****** Write access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsignedShort(final int address, final int value) {
+
+        writeByte(address, (byte) ((value & 0xff00) >> 8));
+        writeByte(address + 1, (byte) (value & 0xff));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeShort(final int address, final short value) {
+
+        writeByte(address, (byte) ((value & 0xff00) >>> 8));
+        writeByte(address + 1, (byte) (value & 0xff));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsignedByte(final int address, final short value) {
+
+        writeByte(address, (byte) (value & 0xff));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeByte(final int address, final byte value) {
+
+        if (address < dynamicSize) {
+
+            try {
+                if (journal != null) {
+                    journal.record(address, dynamic[address], value);
+                }
+                dynamic[address] = value;
+            } catch (IndexOutOfBoundsException ex) {
+                throw writeFault(address);
+            }
+            dirtyPages[address >>> PAGE_BITS] = true;
+            return;
+        }
+        if (!staticWritable || address >= shared.length) {
+            throw writeFault(address);
+        }
+        if (!copied) {
+
+            shared = shared.clone();
+            copied = true;
+        }
+        shared[address] = value;
+        if (address < dynamic.length) {
+
+            // keep the padding consistent
+            dynamic[address] = value;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsigned32(final int address, final long value) {
+
+        writeByte(address, (byte) ((value & 0xff000000) >> 24));
+        writeByte(address + 1, (byte) ((value & 0x00ff0000) >> 16));
+        writeByte(address + 2, (byte) ((value & 0x0000ff00) >> 8));
+        writeByte(address + 3, (byte) (value & 0x000000ff));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeUnsigned48(final int address, final long value) {
+
+        writeByte(address + 0, (byte) ((value & 0xff0000000000l) >> 40));
+        writeByte(address + 1, (byte) ((value & 0x00ff00000000l) >> 32));
+        writeByte(address + 2, (byte) ((value & 0x0000ff000000l) >> 24));
+        writeByte(address + 3, (byte) ((value & 0x000000ff0000l) >> 16));
+        writeByte(address + 4, (byte) ((value & 0x00000000ff00l) >> 8));
+        writeByte(address + 5, (byte) (value & 0x0000000000ffl));
+    }
+
+  // ************************************************************************
+    // ****** Bulk access
+    // ************************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void readBytes(final int address, final byte[] dest,
+            final int offset, final int length) {
+
+        final int numDynamic = getNumDynamic(address, length);
+        try {
+            if (numDynamic > 0) {
+                System.arraycopy(dynamic, address, dest, offset, numDynamic);
+            }
+            System.arraycopy(shared, address + numDynamic, dest,
+                    offset + numDynamic, length - numDynamic);
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBytes(final int address, final byte[] src,
+            final int offset, final int length) {
+
+        final int numDynamic = getNumDynamic(address, length);
+        if (numDynamic < length && !staticWritable) {
+            throw writeFault(address + numDynamic);
+        }
+        if (numDynamic > 0) {
+
+            try {
+                if (journal != null) {
+                    record(address, src, offset, numDynamic);
+                }
+                System.arraycopy(src, offset, dynamic, address, numDynamic);
+            } catch (IndexOutOfBoundsException ex) {
+                throw writeFault(address);
+            }
+            markDirty(address, numDynamic);
+        }
+        for (int i = numDynamic; i < length; i++) {
+
+            writeByte(address + i, src[offset + i]);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyBytes(final int srcAddress, final int destAddress,
+            final int length) {
+
+        if (length > 0 && getNumDynamic(destAddress, length) == length
+                && getNumDynamic(srcAddress, length) == length) {
+
+            try {
+                if (journal != null) {
+                    record(destAddress, dynamic, srcAddress, length);
+                }
+                System.arraycopy(dynamic, srcAddress, dynamic, destAddress,
+                        length);
+            } catch (IndexOutOfBoundsException ex) {
+                throw (srcAddress < 0) ? readFault(srcAddress)
+                        : writeFault(destAddress);
+            }
+            markDirty(destAddress, length);
+            return;
+        }
+        // the source is read before the destination is written
+        final byte[] buffer = new byte[length];
+        readBytes(srcAddress, buffer, 0, length);
+        writeBytes(destAddress, buffer, 0, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fill(final int address, final byte value, final int length) {
+
+        final int numDynamic = getNumDynamic(address, length);
+        if (numDynamic < length && !staticWritable) {
+            throw writeFault(address + numDynamic);
+        }
+        if (numDynamic > 0) {
+
+            try {
+                if (journal != null) {
+                    for (int i = 0; i < numDynamic; i++) {
+                        journal.record(address + i, dynamic[address + i],
+                                value);
+                    }
+                }
+                Arrays.fill(dynamic, address, address + numDynamic, value);
+            } catch (IndexOutOfBoundsException ex) {
+                throw writeFault(address);
+            }
+            markDirty(address, numDynamic);
+        }
+        for (int i = numDynamic; i < length; i++) {
+
+            writeByte(address + i, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int mismatch(final int address, final byte[] other,
+            final int offset, final int length) {
+
+        final int numDynamic = getNumDynamic(address, length);
+        try {
+            final int index = DefaultMemory.findMismatch(dynamic, address,
+                    other, offset, numDynamic);
+            if (index >= 0 || numDynamic == length) {
+                return index;
+            }
+            final int sharedIndex = DefaultMemory.findMismatch(shared,
+                    address + numDynamic, other, offset + numDynamic,
+                    length - numDynamic);
+            return (sharedIndex < 0) ? -1 : numDynamic + sharedIndex;
+        } catch (IndexOutOfBoundsException ex) {
+            throw readFault(address);
+        }
+    }
+
+    /**
+     * Records the writes of a range of dynamic memory in the journal. Must
+     * be called before the range is written, src can be the dynamic memory.
+     *
+     * @param address the start address
+     * @param src the array that contains the new values
+     * @param offset the start offset in the array
+     * @param length the number of bytes, which must lie in dynamic memory
+     */
+    private void record(final int address, final byte[] src, final int offset,
+            final int length) {
+
+        for (int i = 0; i < length; i++) {
+            journal.record(address + i, dynamic[address + i], src[offset + i]);
+        }
+    }
+
+    /**
+     * Marks the pages of the specified range of dynamic memory as dirty.
+     *
+     * @param address the start address
+     * @param length the number of bytes, at least 1, which must lie in
+     * dynamic memory
+     */
+    private void markDirty(final int address, final int length) {
+
+        Arrays.fill(dirtyPages, address >>> PAGE_BITS,
+                ((address + length - 1) >>> PAGE_BITS) + 1, true);
+    }
+
+    /**
+     * Creates the exception for a read outside of the story file.
+     *
+     * @param address the address
+     * @return the exception
+     */
+    private MemoryAccessException readFault(final int address) {
+
+        return new MemoryAccessException(String.format(
+                "read outside of the story file at $%05x", address), address);
+    }
+
+    /**
+     * Creates the exception for a write outside of dynamic memory.
+     *
+     * @param address the address
+     * @return the exception
+     */
+    private MemoryAccessException writeFault(final int address) {
+
+        final Region region = getRegion(address);
+        final String target = (region == null) ? "outside of the story file"
+                : (region == Region.HIGH) ? "to high memory"
+                : "to static memory";
+        return new MemoryAccessException(String.format("write %s at $%05x",
+                target, address), address);
+    }
+
+    /**
+     * Returns the number of bytes of the specified range that lie in dynamic
+     * memory.
+     *
+     * @param address the start address
+     * @param length the length of the range
+     * @return the number of bytes in dynamic memory
+     */
+    private int getNumDynamic(final int address, final int length) {
+
+        return Math.max(0, Math.min(length, dynamicSize - address));
+    }
+}
@@ -20,8 +20,11 @@
  */
 package org.zmpp.base;
 
+import java.util.Arrays;
+
 /**
- * This class is the default implementation for MemoryAccess.
+ * This class is the default implementation for MemoryAccess. An access outside
+ * of the array is reported as a MemoryAccessException.
  *
  * @author Wei-ju Wu
  * @version 1.0
@@ -49,23 +52,33 @@ public class DefaultMemory implements Memory {
      */
     public long readUnsigned32(final int address) {
 
-        return (data[address] & 0xff) << 24 | (data[address + 1] & 0xff) << 16
-                | (data[address + 2] & 0xff) << 8 | (data[address + 3] & 0xff);
+        try {
+            return (data[address] & 0xff) << 24
+                    | (data[address + 1] & 0xff) << 16
+                    | (data[address + 2] & 0xff) << 8
+                    | (data[address + 3] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public long readUnsigned48(final int address) {
-        long a0 = data[address + 0] & 0xff;
-        a0 <<= 40;
-        long a1 = data[address + 1] & 0xff;
-        a1 <<= 32;
-        return a0 | a1
-                | (data[address + 2] & 0xff) << 24
-                | (data[address + 3] & 0xff) << 16
-                | (data[address + 4] & 0xff) << 8
-                | (data[address + 5] & 0xff);
+        try {
+            long a0 = data[address + 0] & 0xff;
+            a0 <<= 40;
+            long a1 = data[address + 1] & 0xff;
+            a1 <<= 32;
+            return a0 | a1
+                    | (data[address + 2] & 0xff) << 24
+                    | (data[address + 3] & 0xff) << 16
+                    | (data[address + 4] & 0xff) << 8
+                    | (data[address + 5] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -73,12 +86,16 @@ public class DefaultMemory implements Memory {
      */
     public void writeUnsigned48(final int address, final long value) {
 
-        data[address + 0] = (byte) ((value & 0xff0000000000l) >> 40);
-        data[address + 1] = (byte) ((value & 0x00ff00000000l) >> 32);
-        data[address + 2] = (byte) ((value & 0x0000ff000000l) >> 24);
-        data[address + 3] = (byte) ((value & 0x000000ff0000l) >> 16);
-        data[address + 4] = (byte) ((value & 0x00000000ff00l) >> 8);
-        data[address + 5] = (byte) (value & 0x0000000000ffl);
+        try {
+            data[address + 0] = (byte) ((value & 0xff0000000000l) >> 40);
+            data[address + 1] = (byte) ((value & 0x00ff00000000l) >> 32);
+            data[address + 2] = (byte) ((value & 0x0000ff000000l) >> 24);
+            data[address + 3] = (byte) ((value & 0x000000ff0000l) >> 16);
+            data[address + 4] = (byte) ((value & 0x00000000ff00l) >> 8);
+            data[address + 5] = (byte) (value & 0x0000000000ffl);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -86,7 +103,11 @@ public class DefaultMemory implements Memory {
      */
     public int readUnsignedShort(final int address) {
 
-        return (data[address] & 0xff) << 8 | (data[address + 1] & 0xff);
+        try {
+            return (data[address] & 0xff) << 8 | (data[address + 1] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -94,7 +115,11 @@ public class DefaultMemory implements Memory {
      */
     public short readShort(final int address) {
 
-        return (short) (data[address] << 8 | (data[address + 1] & 0xff));
+        try {
+            return (short) (data[address] << 8 | (data[address + 1] & 0xff));
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -102,7 +127,11 @@ public class DefaultMemory implements Memory {
      */
     public short readUnsignedByte(final int address) {
 
-        return (short) (data[address] & 0xff);
+        try {
+            return (short) (data[address] & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -110,7 +139,11 @@ public class DefaultMemory implements Memory {
      */
     public byte readByte(final int address) {
 
-        return data[address];
+        try {
+            return data[address];
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -121,8 +154,12 @@ public class DefaultMemory implements Memory {
      */
     public void writeUnsignedShort(final int address, final int value) {
 
-        data[address] = (byte) ((value & 0xff00) >> 8);
-        data[address + 1] = (byte) (value & 0xff);
+        try {
+            data[address] = (byte) ((value & 0xff00) >> 8);
+            data[address + 1] = (byte) (value & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -133,8 +170,12 @@ public class DefaultMemory implements Memory {
      */
     public void writeShort(final int address, final short value) {
 
-        data[address] = (byte) ((value & 0xff00) >>> 8);
-        data[address + 1] = (byte) (value & 0xff);
+        try {
+            data[address] = (byte) ((value & 0xff00) >>> 8);
+            data[address + 1] = (byte) (value & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -145,7 +186,11 @@ public class DefaultMemory implements Memory {
      */
     public void writeUnsignedByte(final int address, final short value) {
 
-        data[address] = (byte) (value & 0xff);
+        try {
+            data[address] = (byte) (value & 0xff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -156,7 +201,11 @@ public class DefaultMemory implements Memory {
      */
     public void writeByte(final int address, final byte value) {
 
-        data[address] = value;
+        try {
+            data[address] = value;
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
     }
 
     /**
@@ -167,9 +216,113 @@ public class DefaultMemory implements Memory {
      */
     public void writeUnsigned32(final int address, final long value) {
 
-        data[address] = (byte) ((value & 0xff000000) >> 24);
-        data[address + 1] = (byte) ((value & 0x00ff0000) >> 16);
-        data[address + 2] = (byte) ((value & 0x0000ff00) >> 8);
-        data[address + 3] = (byte) (value & 0x000000ff);
+        try {
+            data[address] = (byte) ((value & 0xff000000) >> 24);
+            data[address + 1] = (byte) ((value & 0x00ff0000) >> 16);
+            data[address + 2] = (byte) ((value & 0x0000ff00) >> 8);
+            data[address + 3] = (byte) (value & 0x000000ff);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void readBytes(final int address, final byte[] dest,
+            final int offset, final int length) {
+
+        try {
+            System.arraycopy(data, address, dest, offset, length);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBytes(final int address, final byte[] src,
+            final int offset, final int length) {
+
+        try {
+            System.arraycopy(src, offset, data, address, length);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyBytes(final int srcAddress, final int destAddress,
+            final int length) {
+
+        try {
+            System.arraycopy(data, srcAddress, data, destAddress, length);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(srcAddress);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fill(final int address, final byte value, final int length) {
+
+        try {
+            Arrays.fill(data, address, address + length, value);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int mismatch(final int address, final byte[] other,
+            final int offset, final int length) {
+
+        try {
+            return findMismatch(data, address, other, offset, length);
+        } catch (IndexOutOfBoundsException ex) {
+            throw outOfBounds(address);
+        }
+    }
+
+    /**
+     * Creates the exception for an access outside of the memory.
+     *
+     * @param address the address
+     * @return the exception
+     */
+    private MemoryAccessException outOfBounds(final int address) {
+
+        return new MemoryAccessException(String.format(
+                "access outside of memory at $%05x, size $%05x", address,
+                data.length), address);
+    }
+
+    /**
+     * Compares two ranges of byte arrays.
+     *
+     * @param a the first array
+     * @param aOffset the start offset in the first array
+     * @param b the second array
+     * @param bOffset the start offset in the second array
+     * @param length the number of bytes
+     * @return the index of the first byte that differs, relative to the
+     * offsets, or -1 if the ranges are equal
+     */
+    static int findMismatch(final byte[] a, final int aOffset, final byte[] b,
+            final int bOffset, final int length) {
+
+        for (int i = 0; i < length; i++) {
+
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
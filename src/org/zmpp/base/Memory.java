@@ -135,4 +135,60 @@ public interface Memory {
      * @param value the value
      */
     void writeUnsigned48(int address, long value);
+
+  // ************************************************************************
+    // ****
+    // **** Bulk access
+    // ****
+    // *****************************
+    /**
+     * Copies a range of bytes from memory into the specified array.
+     *
+     * @param address the start address in memory
+     * @param dest the destination array
+     * @param offset the start offset in the destination array
+     * @param length the number of bytes
+     */
+    void readBytes(int address, byte[] dest, int offset, int length);
+
+    /**
+     * Copies a range of bytes from the specified array into memory.
+     *
+     * @param address the start address in memory
+     * @param src the source array
+     * @param offset the start offset in the source array
+     * @param length the number of bytes
+     */
+    void writeBytes(int address, byte[] src, int offset, int length);
+
+    /**
+     * Copies a range of bytes within memory. The ranges may overlap, the
+     * destination receives the bytes the source contained before the copy.
+     *
+     * @param srcAddress the start address of the source
+     * @param destAddress the start address of the destination
+     * @param length the number of bytes
+     */
+    void copyBytes(int srcAddress, int destAddress, int length);
+
+    /**
+     * Sets a range of bytes to the specified value.
+     *
+     * @param address the start address
+     * @param value the value
+     * @param length the number of bytes
+     */
+    void fill(int address, byte value, int length);
+
+    /**
+     * Compares a range of bytes with the specified array.
+     *
+     * @param address the start address in memory
+     * @param other the array to compare with
+     * @param offset the start offset in the array
+     * @param length the number of bytes
+     * @return the index of the first byte that differs, relative to the start
+     * of the range, or -1 if the ranges are equal
+     */
+    int mismatch(int address, byte[] other, int offset, int length);
 }
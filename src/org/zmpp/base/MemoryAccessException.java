@@ -0,0 +1,56 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.base;
+
+/**
+ * This exception is thrown if a memory is accessed outside of its bounds or
+ * written in a region that is write protected. A Z-machine story can cause
+ * it with an invalid address, so it is reported as a fault of the story.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class MemoryAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int address;
+
+    /**
+     * Constructor.
+     *
+     * @param message the message, which should name the address
+     * @param address the address that was accessed
+     */
+    public MemoryAccessException(final String message, final int address) {
+
+        super(message);
+        this.address = address;
+    }
+
+    /**
+     * Returns the address that was accessed.
+     *
+     * @return the address
+     */
+    public int getAddress() {
+
+        return address;
+    }
+}
@@ -23,7 +23,8 @@ package org.zmpp.base;
 /**
  * A MemorySection object wraps a Memory object, a length and a start to support
  * subsections within memory. All access functions will be relative to the
- * initialized start offset within the global memory.
+ * initialized start offset within the global memory. An access outside of the
+ * section is reported as a MemoryAccessException.
  *
  * @author Wei-ju Wu
  * @version 1.0
@@ -61,6 +62,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public long readUnsigned48(final int address) {
+        checkBounds(address, 6);
         return memory.readUnsigned48(address + start);
     }
 
@@ -68,6 +70,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeUnsigned48(final int address, final long value) {
+        checkBounds(address, 6);
         memory.writeUnsigned48(address + start, value);
     }
 
@@ -75,6 +78,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeUnsignedShort(final int address, final int value) {
+        checkBounds(address, 2);
         memory.writeUnsignedShort(address + start, value);
     }
 
@@ -82,6 +86,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeShort(final int address, final short value) {
+        checkBounds(address, 2);
         memory.writeShort(address + start, value);
     }
 
@@ -89,6 +94,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeUnsignedByte(final int address, final short value) {
+        checkBounds(address, 1);
         memory.writeUnsignedByte(address + start, value);
     }
 
@@ -96,6 +102,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeByte(final int address, final byte value) {
+        checkBounds(address, 1);
         memory.writeByte(address + start, value);
     }
 
@@ -103,6 +110,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public void writeUnsigned32(final int address, final long value) {
+        checkBounds(address, 4);
         memory.writeUnsigned32(address + start, value);
     }
 
@@ -110,6 +118,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public long readUnsigned32(final int address) {
+        checkBounds(address, 4);
         return memory.readUnsigned32(address + start);
     }
 
@@ -117,6 +126,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public int readUnsignedShort(final int address) {
+        checkBounds(address, 2);
         return memory.readUnsignedShort(address + start);
     }
 
@@ -124,6 +134,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public short readShort(final int address) {
+        checkBounds(address, 2);
         return memory.readShort(address + start);
     }
 
@@ -131,6 +142,7 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public short readUnsignedByte(final int address) {
+        checkBounds(address, 1);
         return memory.readUnsignedByte(address + start);
     }
 
@@ -138,6 +150,68 @@ public class MemorySection implements Memory {
      * {@inheritDoc}
      */
     public byte readByte(final int address) {
+        checkBounds(address, 1);
         return memory.readByte(address + start);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void readBytes(final int address, final byte[] dest,
+            final int offset, final int length) {
+        checkBounds(address, length);
+        memory.readBytes(address + start, dest, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBytes(final int address, final byte[] src,
+            final int offset, final int length) {
+        checkBounds(address, length);
+        memory.writeBytes(address + start, src, offset, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void copyBytes(final int srcAddress, final int destAddress,
+            final int length) {
+        checkBounds(srcAddress, length);
+        checkBounds(destAddress, length);
+        memory.copyBytes(srcAddress + start, destAddress + start, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void fill(final int address, final byte value, final int length) {
+        checkBounds(address, length);
+        memory.fill(address + start, value, length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int mismatch(final int address, final byte[] other,
+            final int offset, final int length) {
+        checkBounds(address, length);
+        return memory.mismatch(address + start, other, offset, length);
+    }
+
+    /**
+     * Checks that the specified range lies within this section.
+     *
+     * @param address the start address, relative to the section
+     * @param numBytes the number of bytes
+     * @throws MemoryAccessException if the range exceeds the section
+     */
+    private void checkBounds(final int address, final int numBytes) {
+
+        if (address < 0 || address > length - numBytes) {
+            throw new MemoryAccessException(String.format(
+                    "access outside of section at $%05x, length $%05x",
+                    address, length), address);
+        }
+    }
 }
@@ -0,0 +1,326 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.base;
+
+import java.util.Arrays;
+
+/**
+ * A journal of the writes to dynamic memory. Every write that changes a byte
+ * is recorded with its address, the old and the new value, packed into a
+ * single int, so the journal tells exactly what a command changed and can
+ * turn the memory back without a snapshot. The writes are grouped into
+ * turns, a new turn is started when the story reads input.
+ *
+ * The journal only covers the memory, not the program counter and the
+ * stack, reverting a turn does not restore a complete game state. The
+ * number of turns and the number of entries kept are limited, the oldest
+ * turns are discarded when a new one is started or the entries exceed the
+ * budget. Entries and turns are kept in ring buffers, so discarding the
+ * oldest turn does not move the others. A turn that exceeds the budget on
+ * its own is truncated: it keeps no entries and can not be reverted.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class WriteJournal {
+
+    /**
+     * The default entry budget, 4 MB of entries.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    /**
+     * Dynamic memory ends before 64K, so an address fits into 16 bits.
+     */
+    private static final int ADDRESS_SHIFT = 16;
+    private static final int OLD_VALUE_SHIFT = 8;
+
+    /**
+     * The recorded writes: address, old value and new value. The entries are
+     * numbered by a running sequence number, the ring index is the sequence
+     * number modulo the capacity, which is a power of 2. The sequence numbers
+     * may overflow, only their differences are used.
+     */
+    private int[] entries;
+    private int firstEntry;
+    private int endEntry;
+
+    /**
+     * The sequence number of the first entry of every turn, a ring buffer
+     * starting at firstTurn.
+     */
+    private int[] turnStarts;
+    private int firstTurn;
+    private int numTurns;
+
+    private int maxTurns;
+    private int maxEntries;
+
+    /**
+     * Set if the current turn exceeded the entry budget.
+     */
+    private boolean truncated;
+
+    /**
+     * Constructor with the default entry budget.
+     *
+     * @param maxTurns the maximum number of turns kept, at least 1
+     */
+    public WriteJournal(final int maxTurns) {
+
+        this(maxTurns, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxTurns the maximum number of turns kept, at least 1
+     * @param maxEntries the maximum number of entries kept, at least 1
+     */
+    public WriteJournal(final int maxTurns, final int maxEntries) {
+
+        super();
+        this.maxTurns = Math.max(1, maxTurns);
+        this.maxEntries = Math.max(1, maxEntries);
+        entries = new int[256];
+        turnStarts = new int[16];
+        numTurns = 1;
+    }
+
+    /**
+     * Records a write to the specified address. A write that does not change
+     * the value is not recorded. If the entry budget is exhausted, the oldest
+     * turns are discarded, if the current turn exhausts it alone, it is
+     * truncated.
+     *
+     * @param address the address in dynamic memory
+     * @param oldValue the value before the write
+     * @param newValue the value written
+     */
+    public void record(final int address, final byte oldValue,
+            final byte newValue) {
+
+        if (oldValue == newValue || truncated) {
+            return;
+        }
+        if (endEntry - firstEntry == maxEntries) {
+
+            while (numTurns > 1 && endEntry - firstEntry == maxEntries) {
+                removeOldestTurn();
+            }
+            if (endEntry - firstEntry == maxEntries) {
+
+                // the only turn can not be reverted any more
+                firstEntry = endEntry;
+                turnStarts[firstTurn] = endEntry;
+                truncated = true;
+                return;
+            }
+        }
+        if (endEntry - firstEntry == entries.length) {
+            entries = growRing(entries, firstEntry, endEntry - firstEntry);
+        }
+        entries[endEntry & (entries.length - 1)] = address << ADDRESS_SHIFT
+                | (oldValue & 0xff) << OLD_VALUE_SHIFT | (newValue & 0xff);
+        endEntry++;
+    }
+
+    /**
+     * Starts a new turn. If the maximum number of turns is exceeded, the
+     * oldest turn is discarded, a truncated turn is always discarded.
+     */
+    public void startTurn() {
+
+        if (truncated) {
+
+            numTurns = 0;
+            truncated = false;
+        } else if (numTurns == maxTurns) {
+            removeOldestTurn();
+        }
+        if (numTurns == turnStarts.length) {
+
+            turnStarts = growRing(turnStarts, firstTurn, numTurns);
+        }
+        turnStarts[(firstTurn + numTurns) & (turnStarts.length - 1)]
+                = endEntry;
+        numTurns++;
+    }
+
+    /**
+     * Discards all entries and turns.
+     */
+    public void clear() {
+
+        firstEntry = endEntry;
+        firstTurn = 0;
+        turnStarts[0] = endEntry;
+        numTurns = 1;
+        truncated = false;
+    }
+
+    /**
+     * Determines whether the current turn exceeded the entry budget.
+     *
+     * @return true if the current turn can not be reverted
+     */
+    public boolean isTruncated() {
+
+        return truncated;
+    }
+
+    /**
+     * Reverts the writes of the current turn in the specified memory and
+     * discards the turn, the turn before becomes the current one. If the
+     * current turn is the only one, it is emptied.
+     *
+     * @param memory the memory the writes were recorded from
+     * @throws IllegalStateException if the current turn is truncated
+     */
+    public void revertTurn(final Memory memory) {
+
+        if (truncated) {
+            throw new IllegalStateException(
+                    "the turn exceeded the journal's entry budget");
+        }
+        final int start = getTurnStart(numTurns - 1);
+        final int end = getNumEntries();
+        for (int i = end - 1; i >= start; i--) {
+
+            memory.writeByte(getAddress(i), getOldValue(i));
+        }
+        // the memory records the reverting writes, which are discarded
+        endEntry = firstEntry + start;
+        if (numTurns > 1) {
+            numTurns--;
+        }
+    }
+
+    /**
+     * Returns the number of turns, including the current one.
+     *
+     * @return the number of turns
+     */
+    public int getNumTurns() {
+
+        return numTurns;
+    }
+
+    /**
+     * Returns the index of the first entry of the specified turn.
+     *
+     * @param turn the turn, 0 is the oldest turn
+     * @return the entry index
+     */
+    public int getTurnStart(final int turn) {
+
+        return turnStarts[(firstTurn + turn) & (turnStarts.length - 1)]
+                - firstEntry;
+    }
+
+    /**
+     * Returns the index after the last entry of the specified turn.
+     *
+     * @param turn the turn, 0 is the oldest turn
+     * @return the entry index
+     */
+    public int getTurnEnd(final int turn) {
+
+        return (turn == numTurns - 1) ? getNumEntries()
+                : getTurnStart(turn + 1);
+    }
+
+    /**
+     * Returns the number of recorded writes.
+     *
+     * @return the number of entries
+     */
+    public int getNumEntries() {
+
+        return endEntry - firstEntry;
+    }
+
+    /**
+     * Returns the address of the specified entry.
+     *
+     * @param index the entry index, 0 is the oldest entry
+     * @return the address
+     */
+    public int getAddress(final int index) {
+
+        return getEntry(index) >>> ADDRESS_SHIFT;
+    }
+
+    /**
+     * Returns the value before the write of the specified entry.
+     *
+     * @param index the entry index, 0 is the oldest entry
+     * @return the old value
+     */
+    public byte getOldValue(final int index) {
+
+        return (byte) (getEntry(index) >>> OLD_VALUE_SHIFT);
+    }
+
+    /**
+     * Returns the value written by the specified entry.
+     *
+     * @param index the entry index, 0 is the oldest entry
+     * @return the new value
+     */
+    public byte getNewValue(final int index) {
+
+        return (byte) getEntry(index);
+    }
+
+    private int getEntry(final int index) {
+
+        return entries[(firstEntry + index) & (entries.length - 1)];
+    }
+
+    /**
+     * Discards the entries of the oldest turn.
+     */
+    private void removeOldestTurn() {
+
+        firstTurn = (firstTurn + 1) & (turnStarts.length - 1);
+        numTurns--;
+        firstEntry = (numTurns > 0) ? turnStarts[firstTurn] : endEntry;
+    }
+
+    /**
+     * Doubles the capacity of a full ring buffer. The elements keep their
+     * positions modulo the new capacity.
+     *
+     * @param ring the ring buffer
+     * @param first the running number or the index of the first element
+     * @param size the number of elements
+     * @return the new ring buffer
+     */
+    private static int[] growRing(final int[] ring, final int first,
+            final int size) {
+
+        final int[] grown = new int[ring.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[(first + i) & (grown.length - 1)]
+                    = ring[(first + i) & (ring.length - 1)];
+        }
+        return grown;
+    }
+}
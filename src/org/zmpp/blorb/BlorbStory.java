@@ -48,10 +48,7 @@ public class BlorbStory {
         final Chunk chunk = formchunk.getSubChunk("ZCOD".getBytes());
         final int size = chunk.getSize();
         final byte[] data = new byte[size];
-        for (int i = 0; i < size; i++) {
-
-            data[i] = chunk.getMemory().readByte(i + Chunk.CHUNK_HEADER_LENGTH);
-        }
+        chunk.getMemory().readBytes(Chunk.CHUNK_HEADER_LENGTH, data, 0, size);
         return data;
     }
 }
@@ -25,33 +25,21 @@ package org.zmpp.encoding;
  * input system since the dictionaries store their entries in ZSCII and the
  * input will be converted into this encoding.
  *
- * ZSCII strings are represented as a sequence of 16-bit characters.
+ * ZSCII strings are represented as a sequence of 16-bit characters. A ZSCII
+ * string does not know the encoding of the story file it belongs to, the
+ * conversions from and to Unicode take the encoding as a parameter, so
+ * machines with different accent tables do not interfere.
  *
  * @author Wei-ju Wu
  * @version 1.0
  */
 public class ZsciiString {
 
-    /**
-     * The encoding object.
-     */
-    private static ZsciiEncoding encoding;
-
     /**
      * The string data.
      */
     private char[] data;
 
-    /**
-     * Global initialization method.
-     *
-     * @param encoding the encoding
-     */
-    public static void initialize(final ZsciiEncoding encoding) {
-
-        ZsciiString.encoding = encoding;
-    }
-
     /**
      * Constructor.
      *
@@ -67,8 +55,9 @@ public class ZsciiString {
      * Creates a ZSCII string from a string.
      *
      * @param str the string
+     * @param encoding the encoding of the story file
      */
-    public ZsciiString(final String str) {
+    public ZsciiString(final String str, final ZsciiEncoding encoding) {
 
         super();
         this.data = encoding.convertToZscii(str);
@@ -188,9 +177,12 @@ public class ZsciiString {
     }
 
     /**
-     * {@inheritDoc}
+     * Converts this string to Unicode with the specified encoding.
+     *
+     * @param encoding the encoding of the story file
+     * @return the Unicode string
      */
-    public String toString() {
+    public String toString(final ZsciiEncoding encoding) {
 
         final StringBuilder builder = new StringBuilder();
         for (int i = 0; i < data.length; i++) {
@@ -199,4 +191,26 @@ public class ZsciiString {
         }
         return builder.toString();
     }
+
+    /**
+     * Returns the string for debugging purposes. Only ASCII characters and
+     * newlines are converted, all other characters are shown as '?'.
+     *
+     * @return the string
+     */
+    public String toString() {
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < data.length; i++) {
+
+            if (ZsciiEncoding.isAscii(data[i])) {
+                builder.append(data[i]);
+            } else if (data[i] == ZsciiEncoding.NEWLINE) {
+                builder.append('\n');
+            } else {
+                builder.append('?');
+            }
+        }
+        return builder.toString();
+    }
 }
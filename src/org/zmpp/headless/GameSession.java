@@ -0,0 +1,242 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.headless;
+
+import java.util.LinkedList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.zmpp.vm.Cpu.RunStatus;
+
+/**
+ * A game session executes the commands of a single game on the workers of a
+ * SessionScheduler. Commands can be submitted from any thread, they are
+ * queued and executed in order, the returned futures provide the text the
+ * story printed. Commands submitted after the scheduler was shut down are
+ * rejected with a RejectedExecutionException.
+ *
+ * Cancelling the future of a command that runs too long stops it at the end
+ * of its current turn. The story remains where it was stopped, the text
+ * printed so far is returned with the next command. If the story causes a
+ * fault, the future fails with the MachineFault, the session remains usable,
+ * e.g. to restore a saved game.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class GameSession {
+
+    private SessionScheduler scheduler;
+    private HeadlessGame game;
+
+    /**
+     * The commands that were submitted but not finished yet, the first one
+     * is the command in progress.
+     */
+    private LinkedList<Command> pending;
+
+    /**
+     * True while a turn of this session is scheduled or running.
+     */
+    private boolean scheduled;
+
+    /**
+     * Executes the next steps of the current command and schedules the next
+     * turn.
+     */
+    private Runnable turn = new Runnable() {
+        public void run() {
+            executeTurns();
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param scheduler the scheduler
+     * @param game the game
+     */
+    GameSession(final SessionScheduler scheduler, final HeadlessGame game) {
+
+        this.scheduler = scheduler;
+        this.game = game;
+        pending = new LinkedList<Command>();
+    }
+
+    /**
+     * Returns the game.
+     *
+     * @return the game
+     */
+    public HeadlessGame getGame() {
+
+        return game;
+    }
+
+    /**
+     * Starts the story.
+     *
+     * @return the text printed until the story waits for input
+     */
+    public Future<String> start() {
+
+        return submit(new Command(null));
+    }
+
+    /**
+     * Executes the specified command.
+     *
+     * @param command the command
+     * @return the text printed until the story waits for more input
+     */
+    public Future<String> execute(final String command) {
+
+        return submit(new Command(command));
+    }
+
+  // ***********************************************************************
+    // ****** Private functions
+    // ******************************************
+    private Future<String> submit(final Command command) {
+
+        synchronized (this) {
+
+            pending.add(command);
+            if (scheduled) {
+                return command;
+            }
+            scheduled = true;
+        }
+        try {
+            scheduler.schedule(turn);
+        } catch (RejectedExecutionException ex) {
+
+            synchronized (this) {
+                pending.remove(command);
+                scheduled = false;
+            }
+            throw ex;
+        }
+        return command;
+    }
+
+    /**
+     * Executes a turn and schedules the next one. If the scheduler shuts
+     * down, the accepted commands are finished on the current thread.
+     */
+    private void executeTurns() {
+
+        for (;;) {
+
+            final Command command;
+            synchronized (this) {
+                command = pending.peek();
+            }
+            final boolean finished = command.isCancelled()
+                    || executeTurn(command);
+            synchronized (this) {
+
+                if (finished) {
+                    pending.poll();
+                }
+                if (pending.isEmpty()) {
+
+                    scheduled = false;
+                    return;
+                }
+            }
+            try {
+                // give the other sessions a turn before continuing
+                scheduler.schedule(turn);
+                return;
+            } catch (RejectedExecutionException ex) {
+                // the scheduler shuts down, continue on this thread
+            }
+        }
+    }
+
+    /**
+     * Executes the next steps of the specified command.
+     *
+     * @param command the command
+     * @return true if the command finished, false if it needs another turn
+     */
+    private boolean executeTurn(final Command command) {
+
+        try {
+            if (!command.started) {
+
+                command.started = true;
+                if (command.command == null) {
+                    game.getMachine().start();
+                } else {
+                    game.type(command.command);
+                }
+            }
+            final RunStatus status = game.run(scheduler.getStepsPerTurn());
+            if (status == RunStatus.BUDGET_EXHAUSTED) {
+                return false;
+            }
+            if (status == RunStatus.FAULT) {
+                command.fail(game.getMachine().getCpu().getFault());
+            } else {
+                command.finish(game.getScreenModel().takeText());
+            }
+
+        } catch (Throwable ex) {
+
+            command.fail(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Does nothing, a command is never run as a whole.
+     */
+    private static final Runnable NOTHING = new Runnable() {
+        public void run() {
+        }
+    };
+
+    /**
+     * A submitted command and its result.
+     */
+    private static final class Command extends FutureTask<String> {
+
+        /**
+         * The command, null to start the story.
+         */
+        final String command;
+        boolean started;
+
+        Command(final String command) {
+            super(NOTHING, null);
+            this.command = command;
+        }
+
+        void finish(final String text) {
+            set(text);
+        }
+
+        void fail(final Throwable cause) {
+            setException(cause);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.headless;
+
+import java.io.Reader;
+import java.io.Writer;
+
+import org.zmpp.encoding.ZsciiEncoding;
+import org.zmpp.iff.FormChunk;
+import org.zmpp.iff.WritableFormChunk;
+import org.zmpp.io.IOSystem;
+import org.zmpp.io.InputStream;
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Cpu.RunStatus;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.SaveGameDataStore;
+import org.zmpp.vm.StatusLine;
+
+/**
+ * A game session without user interface. The story is executed on the
+ * calling thread: start() and execute() run the CPU until the story waits
+ * for input that was not typed yet or quits, and return the text the story
+ * printed meanwhile. The game keeps the last saved game in memory.
+ *
+ * For time slicing, type() and run() split a command into steps: run()
+ * executes a limited number of steps and can be called again if the budget
+ * was exhausted.
+ *
+ * If the story causes a fault, e.g. writes outside of its dynamic memory, it
+ * is halted with an error message and run() reports RunStatus.FAULT, the
+ * fault is available from the CPU.
+ *
+ * A game is not thread safe, but any number of games can run in the same
+ * JVM.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class HeadlessGame implements InputStream, StatusLine, IOSystem,
+        SaveGameDataStore {
+
+    private Machine machine;
+    private HeadlessScreenModel screen;
+
+    /**
+     * The typed ZSCII characters that were not read yet.
+     */
+    private StringBuilder input;
+
+    private String statusLine;
+    private WritableFormChunk savegame;
+
+    /**
+     * Constructor.
+     *
+     * @param machine the machine object
+     */
+    public HeadlessGame(final Machine machine) {
+
+        this.machine = machine;
+        screen = new HeadlessScreenModel(machine);
+        input = new StringBuilder();
+        statusLine = "";
+    }
+
+    /**
+     * Returns the machine.
+     *
+     * @return the machine
+     */
+    public Machine getMachine() {
+
+        return machine;
+    }
+
+    /**
+     * Returns the screen model.
+     *
+     * @return the screen model
+     */
+    public HeadlessScreenModel getScreenModel() {
+
+        return screen;
+    }
+
+    /**
+     * Starts the story and runs it until it waits for input.
+     *
+     * @return the text printed by the story
+     */
+    public String start() {
+
+        machine.start();
+        run(Integer.MAX_VALUE);
+        return screen.takeText();
+    }
+
+    /**
+     * Types the specified command followed by a newline and runs the story
+     * until it waits for more input. Characters that can not be represented
+     * in ZSCII are dropped.
+     *
+     * @param command the command
+     * @return the text printed by the story
+     */
+    public String execute(final String command) {
+
+        type(command);
+        run(Integer.MAX_VALUE);
+        return screen.takeText();
+    }
+
+    /**
+     * Types the specified command followed by a newline without running the
+     * story. Characters that can not be represented in ZSCII are dropped.
+     *
+     * @param command the command
+     */
+    public void type(final String command) {
+
+        final ZsciiEncoding encoding = machine.getGameData().getZsciiEncoding();
+        for (int i = 0; i < command.length(); i++) {
+
+            final char c = command.charAt(i);
+            if (encoding.isConvertableToZscii(c)) {
+                input.append(encoding.getZsciiChar(c));
+            }
+        }
+        input.append(ZsciiEncoding.NEWLINE);
+    }
+
+    /**
+     * Runs the story until it waits for input that was not typed yet, quits
+     * or executed the specified number of steps. The budget applies between
+     * two input instructions, so an input instruction that can read typed
+     * characters starts a new budget. The printed text is collected in the
+     * screen model.
+     *
+     * @param maxSteps the maximum number of steps
+     * @return the reason for stopping
+     */
+    public RunStatus run(final int maxSteps) {
+
+        final Cpu cpu = machine.getCpu();
+        for (;;) {
+
+            final RunStatus status = cpu.run(maxSteps);
+            if ((status != RunStatus.NEEDS_LINE_INPUT
+                    && status != RunStatus.NEEDS_CHAR_INPUT)
+                    || input.length() == 0) {
+                return status;
+            }
+        }
+    }
+
+    /**
+     * Determines whether the story is still running, i.e. did not quit.
+     *
+     * @return true if running, false otherwise
+     */
+    public boolean isRunning() {
+
+        return machine.getCpu().isRunning();
+    }
+
+    /**
+     * Returns the contents of the status line in versions 1-3.
+     *
+     * @return the status line
+     */
+    public String getStatusLine() {
+
+        return statusLine;
+    }
+
+  // ***********************************************************************
+    // ****** InputStream interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void cancelInput() {
+    }
+
+    /**
+     * Returns the next typed character. If the story reads more characters
+     * than were typed, e.g. from an interrupt routine, it reads a newline.
+     *
+     * @param flushBeforeGet ignored
+     * @return the next character
+     */
+    public char getZsciiChar(final boolean flushBeforeGet) {
+
+        if (input.length() == 0) {
+            return ZsciiEncoding.NEWLINE;
+        }
+        final char c = input.charAt(0);
+        input.deleteCharAt(0);
+        return c;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() {
+    }
+
+  // ***********************************************************************
+    // ****** StatusLine interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void updateStatusScore(final String objectName, final int score,
+            final int steps) {
+
+        statusLine = objectName + " " + score + "/" + steps;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void updateStatusTime(final String objectName, final int hours,
+            final int minutes) {
+
+        statusLine = objectName + " " + hours + ":"
+                + ((minutes < 10) ? "0" : "") + minutes;
+    }
+
+  // ***********************************************************************
+    // ****** IOSystem interface
+    // ******************************************
+    /**
+     * Transcripts are not supported.
+     *
+     * @return null
+     */
+    public Writer getTranscriptWriter() {
+
+        return null;
+    }
+
+    /**
+     * Command files are not supported.
+     *
+     * @return null
+     */
+    public Reader getInputStreamReader() {
+
+        return null;
+    }
+
+  // ***********************************************************************
+    // ****** SaveGameDataStore interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public boolean saveFormChunk(final WritableFormChunk formchunk) {
+
+        savegame = formchunk;
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public FormChunk retrieveFormChunk() {
+
+        return savegame;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import org.zmpp.io.IOSystem;
+import org.zmpp.io.InputStream;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineFactory;
+import org.zmpp.vm.SaveGameDataStore;
+import org.zmpp.vm.ScreenModel;
+import org.zmpp.vm.StatusLine;
+import org.zmpp.vm.StoryImage;
+
+/**
+ * A machine factory for games without user interface. The UI object is a
+ * HeadlessGame, which runs the story from plain Java code:
+ *
+ * <pre>
+ *   HeadlessGame game = new HeadlessMachineFactory(storyfile, null).buildGame();
+ *   String intro = game.start();
+ *   String answer = game.execute("open mailbox");
+ * </pre>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class HeadlessMachineFactory extends MachineFactory<HeadlessGame> {
+
+    private HeadlessGame game;
+
+    public HeadlessMachineFactory(File storyfile, File blorbfile) {
+        super(storyfile, blorbfile);
+    }
+
+    public HeadlessMachineFactory(File blorbfile) {
+        super(blorbfile);
+    }
+
+    public HeadlessMachineFactory(URL storyurl, URL blorburl) {
+        super(storyurl, blorburl);
+    }
+
+    public HeadlessMachineFactory(byte[] storydata, byte[] blorbdata) {
+        super(storydata, blorbdata);
+    }
+
+    public HeadlessMachineFactory(byte[] blorbdata) {
+        super(blorbdata);
+    }
+
+    public HeadlessMachineFactory(StoryImage storyimage, byte[] blorbdata) {
+        super(storyimage, blorbdata);
+    }
+
+    /**
+     * Builds the machine and returns its game session. The story is not
+     * started yet.
+     *
+     * @return the game
+     * @throws IOException if the story file could not be read
+     */
+    public HeadlessGame buildGame() throws IOException {
+
+        buildMachine();
+        return game;
+    }
+
+    /**
+     * Reports an invalid story file by throwing an IllegalArgumentException.
+     */
+    protected void reportInvalidStory() {
+
+        throw new IllegalArgumentException("Invalid story file.");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected HeadlessGame initUI(final Machine machine) {
+
+        game = new HeadlessGame(machine);
+        return game;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public HeadlessGame getUI() {
+
+        return game;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected IOSystem getIOSystem() {
+
+        return game;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected InputStream getKeyboardInputStream() {
+
+        return game;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected StatusLine getStatusLine() {
+
+        return game;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected ScreenModel getScreenModel() {
+
+        return game.getScreenModel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected SaveGameDataStore getSaveGameDataStore() {
+
+        return game;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.headless;
+
+import org.zmpp.encoding.ZsciiEncoding;
+import org.zmpp.io.OutputStream;
+import org.zmpp.vm.Machine;
+import org.zmpp.vm.ScreenModel;
+import org.zmpp.vm.TextCursor;
+
+/**
+ * A screen model without display. The text printed to the lower window is
+ * collected as Unicode text until it is taken by the game session, the upper
+ * window, which usually holds the status line, and the echo of the typed
+ * input are discarded. Styles, colors and fonts are ignored.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class HeadlessScreenModel implements ScreenModel, OutputStream,
+        TextCursor {
+
+    private static final int WINDOW_BOTTOM = 0;
+
+    private Machine machine;
+    private StringBuilder text;
+    private boolean isSelected;
+    private int activeWindow;
+    private int line;
+    private int column;
+
+    /**
+     * Constructor.
+     *
+     * @param machine the machine object
+     */
+    public HeadlessScreenModel(final Machine machine) {
+
+        this.machine = machine;
+        text = new StringBuilder();
+        line = 1;
+        column = 1;
+    }
+
+    /**
+     * Returns the text printed since the last call and clears it.
+     *
+     * @return the printed text
+     */
+    public String takeText() {
+
+        final String result = text.toString();
+        text.setLength(0);
+        return result;
+    }
+
+  // ***********************************************************************
+    // ****** ScreenModel interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void reset() {
+
+        activeWindow = WINDOW_BOTTOM;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void splitWindow(final int linesUpperWindow) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setWindow(final int window) {
+
+        activeWindow = window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setTextStyle(final int style) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setBufferMode(final boolean flag) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void eraseLine(final int value) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void eraseWindow(final int window) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setTextCursor(final int line, final int column,
+            final int window) {
+
+        setPosition(line, column);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public TextCursor getTextCursor() {
+
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setPaging(final boolean flag) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int setFont(final int fontnumber) {
+
+        return FONT_NORMAL;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setBackgroundColor(final int colornumber, final int window) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setForegroundColor(final int colornumber, final int window) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void redraw() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void displayCursor(final boolean flag) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public OutputStream getOutputStream() {
+
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void waitInitialized() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void resetPagers() {
+    }
+
+  // ***********************************************************************
+    // ****** OutputStream interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public void print(final char zsciiChar, final boolean isInput) {
+
+        if (isInput || activeWindow != WINDOW_BOTTOM) {
+            return;
+        }
+        if (zsciiChar == ZsciiEncoding.NEWLINE) {
+
+            text.append('\n');
+        } else {
+
+            text.append(machine.getGameData().getZsciiEncoding()
+                    .getUnicodeChar(zsciiChar));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void deletePrevious(final char zchar) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void flush() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void select(final boolean flag) {
+
+        isSelected = flag;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isSelected() {
+
+        return isSelected;
+    }
+
+  // ***********************************************************************
+    // ****** TextCursor interface
+    // ******************************************
+    /**
+     * {@inheritDoc}
+     */
+    public int getLine() {
+
+        return line;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getColumn() {
+
+        return column;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setLine(final int line) {
+
+        this.line = line;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setColumn(final int column) {
+
+        this.column = column;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setPosition(final int line, final int column) {
+
+        this.line = line;
+        this.column = column;
+    }
+}
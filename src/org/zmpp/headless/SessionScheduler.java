@@ -0,0 +1,127 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.headless;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The session scheduler runs the commands of any number of game sessions on
+ * a fixed pool of worker threads. A game only occupies a worker while it
+ * executes a command, a session that waits for the next command of its
+ * player does not hold a thread. The commands of a session are executed in
+ * order, one at a time. A turn executes a limited number of steps, a command
+ * that needs more continues in a later turn, so busy sessions and stories
+ * that run into an endless loop do not starve the others. A command that
+ * does not finish can be stopped by cancelling its future.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class SessionScheduler {
+
+    /**
+     * The default number of steps per turn.
+     */
+    public static final int DEFAULT_STEPS_PER_TURN = 100000;
+
+    private ExecutorService executor;
+    private int stepsPerTurn;
+
+    /**
+     * Constructor.
+     *
+     * @param numThreads the number of worker threads
+     */
+    public SessionScheduler(final int numThreads) {
+
+        this(numThreads, DEFAULT_STEPS_PER_TURN);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param numThreads the number of worker threads
+     * @param stepsPerTurn the maximum number of steps a session executes
+     * before the next session gets a turn, a superinstruction or a basic
+     * block counts as one step
+     */
+    public SessionScheduler(final int numThreads, final int stepsPerTurn) {
+
+        this.stepsPerTurn = stepsPerTurn;
+        executor = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactory() {
+                    private int count;
+
+                    public synchronized Thread newThread(final Runnable r) {
+                        final Thread thread = new Thread(r,
+                                "zmpp-session-" + (++count));
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Opens a session for the specified game.
+     *
+     * @param game the game, which must not be used outside of the session
+     * @return the session
+     */
+    public GameSession open(final HeadlessGame game) {
+
+        return new GameSession(this, game);
+    }
+
+    /**
+     * Stops accepting commands and waits for the running ones to finish.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return true if all commands finished, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(final long timeoutMillis)
+            throws InterruptedException {
+
+        executor.shutdown();
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the maximum number of steps per turn.
+     *
+     * @return the number of steps
+     */
+    int getStepsPerTurn() {
+
+        return stepsPerTurn;
+    }
+
+    /**
+     * Schedules a turn of the specified session.
+     *
+     * @param turn the turn
+     */
+    void schedule(final Runnable turn) {
+
+        executor.execute(turn);
+    }
+}
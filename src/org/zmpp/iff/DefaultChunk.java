@@ -81,20 +81,11 @@ public class DefaultChunk implements Chunk {
         final byte[] chunkDataWithHeader
                 = new byte[chunkSize + Chunk.CHUNK_HEADER_LENGTH];
         this.memory = new DefaultMemory(chunkDataWithHeader);
-        int offset = 0;
 
         // Copy the data
-        for (int i = 0; i < id.length; i++) {
-
-            memory.writeByte(offset++, id[i]);
-        }
-        memory.writeUnsigned32(offset, chunkSize);
-        offset += 4;
-
-        for (int i = 0; i < chunkdata.length; i++) {
-
-            memory.writeByte(offset++, chunkdata[i]);
-        }
+        memory.writeBytes(0, id, 0, id.length);
+        memory.writeUnsigned32(id.length, chunkSize);
+        memory.writeBytes(Chunk.CHUNK_HEADER_LENGTH, chunkdata, 0, chunkSize);
     }
 
     /**
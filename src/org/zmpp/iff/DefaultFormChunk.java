@@ -80,8 +80,8 @@ public class DefaultFormChunk extends DefaultChunk implements FormChunk {
     private void readSubChunks() {
         subChunks = new ArrayList<Chunk>();
 
-        // skip the identifying information
-        final int length = getSize();
+        // skip the identifying information, the offsets include the header
+        final int length = getSize() + CHUNK_HEADER_LENGTH;
         int offset = CHUNK_HEADER_LENGTH + CHUNK_ID_LENGTH;
         int chunkTotalSize = 0;
 
@@ -158,10 +158,8 @@ public class WritableFormChunk implements FormChunk {
         int offset = Chunk.CHUNK_HEADER_LENGTH;
 
         // Write sub id
-        for (int i = 0; i < subId.length; i++) {
-
-            memory.writeByte(offset++, subId[i]);
-        }
+        memory.writeBytes(offset, subId, 0, subId.length);
+        offset += subId.length;
 
         // Write sub chunk data
         for (Chunk chunk : subChunks) {
@@ -171,22 +169,17 @@ public class WritableFormChunk implements FormChunk {
             final int chunkSize = chunk.getSize();
 
             // Write id
-            for (int i = 0; i < chunkId.length; i++) {
-
-                memory.writeByte(offset++, chunkId[i]);
-            }
+            memory.writeBytes(offset, chunkId, 0, chunkId.length);
+            offset += chunkId.length;
 
             // Write chunk size
             memory.writeUnsigned32(offset, chunkSize);
             offset += 4; // add the size word length
 
             // Write chunk data
-            final Memory chunkMem = chunk.getMemory();
-            for (int i = 0; i < chunkSize; i++) {
-
-                memory.writeByte(offset++,
-                        chunkMem.readByte(Chunk.CHUNK_HEADER_LENGTH + i));
-            }
+            chunk.getMemory().readBytes(Chunk.CHUNK_HEADER_LENGTH, data, offset,
+                    chunkSize);
+            offset += chunkSize;
 
             // Pad if necessary
             if ((chunkSize % 2) != 0) {
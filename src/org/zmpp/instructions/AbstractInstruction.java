@@ -20,15 +20,13 @@
  */
 package org.zmpp.instructions;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.zmpp.vm.Cpu;
 import org.zmpp.vm.Instruction;
 import org.zmpp.vm.Machine;
 import org.zmpp.vm.PortableGameState;
 import org.zmpp.vm.RoutineContext;
 import org.zmpp.vm.ScreenModel6;
+import org.zmpp.vm.StoryProfile;
 import org.zmpp.vm.Window6;
 
 /**
@@ -97,14 +95,39 @@ public abstract class AbstractInstruction implements Instruction {
         }
     }
 
+    /**
+     * The maximum number of operands, double variable calls take up to 8.
+     */
+    public static final int MAX_OPERANDS = 8;
+
     private int opcode;
-    private List<Operand> operands;
+
+    /**
+     * The operand type numbers, packed into two bits per operand, and the
+     * operand values. Keeping them in primitive storage means that decoding
+     * and operand fetches do not create any objects.
+     */
+    private int operandTypes;
+    private short[] operandValues;
+    private int numOperands;
+
+    /**
+     * The argument values of a call, allocated on the first call.
+     */
+    private short[] callArguments;
     private short storeVariable;
     private boolean branchIfConditionTrue;
     private short branchOffset;
     private int length;
     private Machine machine;
 
+    /**
+     * The version check result is cached, since the story file version does
+     * not change during the lifetime of an instruction.
+     */
+    private boolean availabilityChecked;
+    private boolean opcodeAvailable;
+
     /**
      * Constructor.
      *
@@ -114,7 +137,7 @@ public abstract class AbstractInstruction implements Instruction {
     public AbstractInstruction(final Machine machine, final int opcode) {
         this.opcode = opcode;
         this.machine = machine;
-        this.operands = new ArrayList<Operand>();
+        this.operandValues = new short[MAX_OPERANDS];
         this.branchIfConditionTrue = true;
     }
 
@@ -167,14 +190,26 @@ public abstract class AbstractInstruction implements Instruction {
     protected abstract InstructionStaticInfo getStaticInfo();
 
     /**
-     * Returns the operand at the specified position.
+     * Returns the type number of the operand at the specified position.
+     *
+     * @param operandNum the operand number, starting with 0 as the first
+     * operand.
+     * @return the operand type number, one of the Operand.TYPENUM_ constants
+     */
+    public int getOperandType(final int operandNum) {
+        return (operandTypes >>> (operandNum * 2)) & 0x03;
+    }
+
+    /**
+     * Returns the raw value of the operand at the specified position. For
+     * variable operands this is the variable number.
      *
      * @param operandNum the operand number, starting with 0 as the first
      * operand.
-     * @return the specified operand
+     * @return the raw operand value
      */
-    public Operand getOperand(final int operandNum) {
-        return operands.get(operandNum);
+    public short getOperandValue(final int operandNum) {
+        return operandValues[operandNum];
     }
 
     /**
@@ -186,13 +221,22 @@ public abstract class AbstractInstruction implements Instruction {
         return machine.getVersion();
     }
 
+    /**
+     * Returns the version dependent constants of the story.
+     *
+     * @return the story profile
+     */
+    protected StoryProfile getStoryProfile() {
+        return machine.getGameData().getStoryProfile();
+    }
+
     /**
      * Returns the number of operands.
      *
      * @return the number of operands
      */
     public int getNumOperands() {
-        return operands.size();
+        return numOperands;
     }
 
     /**
@@ -234,10 +278,13 @@ public abstract class AbstractInstruction implements Instruction {
     /**
      * Adds an operand to this object.
      *
-     * @param operand the operand to add
+     * @param typenum the operand type number, one of the Operand.TYPENUM_
+     * constants
+     * @param value the raw operand value
      */
-    public void addOperand(final Operand operand) {
-        this.operands.add(operand);
+    public void addOperand(final int typenum, final short value) {
+        operandTypes |= (typenum & 0x03) << (numOperands * 2);
+        operandValues[numOperands++] = value;
     }
 
     /**
@@ -292,6 +339,13 @@ public abstract class AbstractInstruction implements Instruction {
         return getStaticInfo().isOutput(getOpcode(), getStoryFileVersion());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public int getInputType() {
+        return INPUT_NONE;
+    }
+
     /**
      * Returns true, if this instruction is a branch, false, otherwise.
      *
@@ -321,15 +375,10 @@ public abstract class AbstractInstruction implements Instruction {
      * @return a signed value
      */
     public short getValue(final int operandNum) {
-        final Operand operand = getOperand(operandNum);
-        switch (operand.getType()) {
-            case VARIABLE:
-                return getCpu().getVariable(operand.getValue());
-            case SMALL_CONSTANT:
-            case LARGE_CONSTANT:
-            default:
-                return operand.getValue();
+        if (getOperandType(operandNum) == Operand.TYPENUM_VARIABLE) {
+            return getCpu().getVariable(operandValues[operandNum]);
         }
+        return operandValues[operandNum];
     }
 
     /**
@@ -380,8 +429,28 @@ public abstract class AbstractInstruction implements Instruction {
      * @return true if available, false otherwise
      */
     private boolean isOpcodeAvailable() {
-        final int version = getStoryFileVersion();
-        final int[] validVersions = getStaticInfo().getValidVersions(getOpcode());
+        if (!availabilityChecked) {
+            opcodeAvailable = isOpcodeAvailable(getStaticInfo(), getOpcode(),
+                    getStoryFileVersion());
+            availabilityChecked = true;
+        }
+        return opcodeAvailable;
+    }
+
+    /**
+     * Checks whether the specified opcode is available in the specified story
+     * file version. This is used by the decoder to select specialized
+     * instruction classes once, at decoding time.
+     *
+     * @param staticInfo the static info object of the instruction form
+     * @param opcode the opcode
+     * @param version the story file version
+     * @return true if available, false otherwise
+     */
+    protected static boolean isOpcodeAvailable(
+            final InstructionStaticInfo staticInfo, final int opcode,
+            final int version) {
+        final int[] validVersions = staticInfo.getValidVersions(opcode);
         for (int validVersion : validVersions) {
             if (validVersion == version) {
                 return true;
@@ -429,18 +498,18 @@ public abstract class AbstractInstruction implements Instruction {
             if (i > 0) {
                 buffer.append(", ");
             }
-            final Operand operand = getOperand(i);
-            switch (operand.getType()) {
-                case SMALL_CONSTANT:
-                    buffer.append(String.format("$%02x", operand.getValue()));
+            final short value = getOperandValue(i);
+            switch (getOperandType(i)) {
+                case Operand.TYPENUM_SMALL_CONSTANT:
+                    buffer.append(String.format("$%02x", value));
                     break;
-                case LARGE_CONSTANT:
-                    buffer.append(String.format("$%04x", operand.getValue()));
+                case Operand.TYPENUM_LARGE_CONSTANT:
+                    buffer.append(String.format("$%04x", value));
                     break;
-                case VARIABLE:
-                    buffer.append(getVarName(operand.getValue()));
+                case Operand.TYPENUM_VARIABLE:
+                    buffer.append(getVarName(value));
                     buffer.append("[");
-                    buffer.append(getVarValue(operand.getValue()));
+                    buffer.append(getVarValue(value));
                     buffer.append("]");
                 default:
                     break;
@@ -514,14 +583,17 @@ public abstract class AbstractInstruction implements Instruction {
      */
     protected void call(final int numArgs) {
         final int packedAddress = getUnsignedValue(0);
-        final short[] args = new short[numArgs];
+        if (callArguments == null) {
+            callArguments = new short[MAX_OPERANDS];
+        }
         for (int i = 0; i < numArgs; i++) {
-            args[i] = getValue(i + 1);
+            callArguments[i] = getValue(i + 1);
         }
-        call(packedAddress, args);
+        call(packedAddress, callArguments, numArgs);
     }
 
-    protected void call(final int packedRoutineAddress, final short[] args) {
+    protected void call(final int packedRoutineAddress, final short[] args,
+            final int numArgs) {
         if (packedRoutineAddress == 0) {
             if (storesResult()) {
                 // only if this instruction stores a result
@@ -534,7 +606,7 @@ public abstract class AbstractInstruction implements Instruction {
             final short returnVariable = storesResult() ? getStoreVariable()
                     : RoutineContext.DISCARD_RESULT;
 
-            cpu.call(packedRoutineAddress, returnAddress, args,
+            cpu.call(packedRoutineAddress, returnAddress, args, numArgs,
                     returnVariable);
         }
     }
@@ -546,7 +618,7 @@ public abstract class AbstractInstruction implements Instruction {
         // address is the instruction address + 1
         final boolean success = getMachine().save(pc);
 
-        if (getStoryFileVersion() <= 3) {
+        if (getStoryProfile().saveIsBranch()) {
       //int target = getMachine().getProgramCounter() + getLength();
             //target--; // point to the previous branch offset
             //boolean success = getMachine().save(target);
@@ -560,7 +632,7 @@ public abstract class AbstractInstruction implements Instruction {
 
     protected void restoreFromStorage() {
         final PortableGameState gamestate = getMachine().restore();
-        if (getStoryFileVersion() <= 3) {
+        if (getStoryProfile().saveIsBranch()) {
             if (gamestate == null) {
                 // If failure on restore, just continue
                 nextInstruction();
@@ -0,0 +1,136 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Machine;
+
+/**
+ * A basic block is a straight-line sequence of decoded instructions that is
+ * executed as a single step. The block is left as soon as an instruction
+ * transfers control somewhere else than to its successor, so a block is
+ * always safe to execute, even if a branch, call or return was not detected
+ * at compile time.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BasicBlock implements Instruction {
+
+    /**
+     * The machine object.
+     */
+    private Machine machine;
+
+    /**
+     * The instructions of this block.
+     */
+    private Instruction[] instructions;
+
+    /**
+     * The address following each instruction.
+     */
+    private int[] nextAddresses;
+
+    /**
+     * True if any of the instructions prints output.
+     */
+    private boolean isOutput;
+
+    /**
+     * Constructor.
+     *
+     * @param machine the machine object
+     * @param instructions the instructions in execution order
+     * @param nextAddresses the address following each instruction
+     */
+    public BasicBlock(final Machine machine, final Instruction[] instructions,
+            final int[] nextAddresses) {
+
+        this.machine = machine;
+        this.instructions = instructions;
+        this.nextAddresses = nextAddresses;
+        for (Instruction instruction : instructions) {
+
+            isOutput |= instruction.isOutput();
+        }
+    }
+
+    /**
+     * Returns the number of instructions in this block.
+     *
+     * @return the number of instructions
+     */
+    public int getNumInstructions() {
+
+        return instructions.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() {
+
+        final Cpu cpu = machine.getCpu();
+        final int last = instructions.length - 1;
+        for (int i = 0; i < last; i++) {
+
+            instructions[i].execute();
+            if (cpu.getProgramCounter() != nextAddresses[i]
+                    || !cpu.isRunning()) {
+
+                return;
+            }
+        }
+        instructions[last].execute();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isOutput() {
+
+        return isOutput;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getInputType() {
+
+        // input instructions are never part of a block
+        return INPUT_NONE;
+    }
+
+    public String toString() {
+
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append("BLOCK[");
+        for (int i = 0; i < instructions.length; i++) {
+
+            if (i > 0) {
+                buffer.append("; ");
+            }
+            buffer.append(instructions[i].toString());
+        }
+        buffer.append("]");
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryAccessException;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.InstructionDecoder;
+import org.zmpp.vm.Machine;
+
+/**
+ * An optional decoder that sits in front of an instruction decoder.
+ * Starting at the address the CPU asks for (routine start addresses, branch
+ * targets and return addresses), it collects the straight-line instructions
+ * up to the next control transfer into a BasicBlock, so the CPU loop runs a
+ * whole block per step. The blocks hold the decoded instructions, no JVM
+ * code is generated. Input, sound and state switching instructions
+ * (read, read_char, sound_effect, save, restore, ...) are never placed in
+ * a block and are always handed to the interpreter as single instructions.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BlockCompiler implements InstructionDecoder {
+
+    /**
+     * The maximum number of instructions in a block.
+     */
+    private static final int MAX_BLOCK_LENGTH = 64;
+
+    /**
+     * The number of address bits covered by a single cache page.
+     */
+    private static final int PAGE_BITS = 10;
+
+    /**
+     * The number of block slots in a cache page.
+     */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * The largest possible story file (version 8) is 512 KB.
+     */
+    private static final int MAX_STORY_SIZE = 512 * 1024;
+
+    /**
+     * The decoder that provides the single instructions.
+     */
+    private InstructionDecoder decoder;
+
+    /**
+     * The compiled blocks, indexed by their start address.
+     */
+    private Instruction[][] blockCache;
+
+    /**
+     * The machine object.
+     */
+    private Machine machine;
+
+    /**
+     * The size of the story file, blocks can only start below it.
+     */
+    private int storySize;
+
+    /**
+     * Constructor.
+     *
+     * @param decoder the decoder for single instructions
+     */
+    public BlockCompiler(final InstructionDecoder decoder) {
+
+        this.decoder = decoder;
+        blockCache = new Instruction[MAX_STORY_SIZE / PAGE_SIZE][];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void initialize(final Machine machine, final Memory memory) {
+
+        this.machine = machine;
+        decoder.initialize(machine, memory);
+        storySize = DefaultInstructionDecoder.getStorySize(machine);
+    }
+
+    /**
+     * Returns the block starting at the specified address. If no block can be
+     * formed at this address, the single instruction is returned.
+     *
+     * @param instructionAddress the block's start address
+     * @return the block or instruction at the specified address
+     */
+    public Instruction decodeInstruction(final int instructionAddress) {
+
+        DefaultInstructionDecoder.checkAddress(instructionAddress, storySize);
+        Instruction[] page = blockCache[instructionAddress >>> PAGE_BITS];
+        if (page == null) {
+            page = new Instruction[PAGE_SIZE];
+            blockCache[instructionAddress >>> PAGE_BITS] = page;
+        }
+        final int slot = instructionAddress & (PAGE_SIZE - 1);
+        Instruction block = page[slot];
+        if (block == null) {
+            block = compile(instructionAddress);
+            page[slot] = block;
+        }
+        return block;
+    }
+
+  // ***********************************************************************
+    // ****** Private functions
+    // ******************************************
+    /**
+     * Collects the instructions of the block that starts at the specified
+     * address. The block ends before an instruction that can not be decoded,
+     * so the instructions before it are executed before the fault.
+     *
+     * @param startAddress the start address
+     * @return a BasicBlock or a single instruction
+     */
+    private Instruction compile(final int startAddress) {
+
+        final List<Instruction> instructions = new ArrayList<Instruction>();
+        final List<Integer> nextAddresses = new ArrayList<Integer>();
+        int address = startAddress;
+
+        while (instructions.size() < MAX_BLOCK_LENGTH) {
+
+            Instruction instruction;
+            try {
+
+                instruction = decoder.decodeInstruction(address);
+            } catch (MemoryAccessException ex) {
+
+                if (instructions.isEmpty()) {
+                    throw ex;
+                }
+                break;
+            }
+            if (instruction instanceof FusedInstruction) {
+
+                // blocks are built from the single instructions
+                instruction = ((FusedInstruction) instruction).getFirst();
+            }
+            if (!(instruction instanceof AbstractInstruction)
+                    || requiresInterpreter((AbstractInstruction) instruction)) {
+                break;
+            }
+            final AbstractInstruction info = (AbstractInstruction) instruction;
+            address += info.getLength();
+            instructions.add(info);
+            nextAddresses.add(address);
+            if (endsBlock(info)) {
+                break;
+            }
+        }
+
+        if (instructions.size() <= 1) {
+
+            // a block would not save a dispatch
+            return decoder.decodeInstruction(startAddress);
+        }
+        final int[] addresses = new int[nextAddresses.size()];
+        for (int i = 0; i < addresses.length; i++) {
+
+            addresses[i] = nextAddresses.get(i);
+        }
+        return new BasicBlock(machine,
+                instructions.toArray(new Instruction[instructions.size()]),
+                addresses);
+    }
+
+    /**
+     * Determines whether the specified instruction transfers control, so the
+     * block has to end after it.
+     *
+     * @param info the instruction
+     * @return true if the block ends with this instruction
+     */
+    private boolean endsBlock(final AbstractInstruction info) {
+
+        if (info.isBranch()) {
+            return true;
+        }
+        final int opcode = info.getOpcode();
+        if (info instanceof PrintLiteralInstruction) {
+
+            return opcode == PrintLiteralStaticInfo.OP_PRINT_RET;
+
+        } else if (info instanceof LongInstruction) {
+
+            return opcode == LongStaticInfo.OP_CALL_2S
+                    || opcode == LongStaticInfo.OP_CALL_2N
+                    || opcode == LongStaticInfo.OP_THROW;
+
+        } else if (info instanceof Short0Instruction) {
+
+            return opcode == Short0StaticInfo.OP_RTRUE
+                    || opcode == Short0StaticInfo.OP_RFALSE
+                    || opcode == Short0StaticInfo.OP_RET_POPPED;
+
+        } else if (info instanceof Short1Instruction) {
+
+            return opcode == Short1StaticInfo.OP_CALL_1S
+                    || opcode == Short1StaticInfo.OP_RET
+                    || opcode == Short1StaticInfo.OP_JUMP
+                    || (opcode == Short1StaticInfo.OP_CALL_1N
+                    && machine.getVersion() >= 5);
+
+        } else if (info instanceof VariableInstruction) {
+
+            return opcode == VariableStaticInfo.OP_CALL
+                    || opcode == VariableStaticInfo.OP_CALL_VS2
+                    || opcode == VariableStaticInfo.OP_CALL_VN
+                    || opcode == VariableStaticInfo.OP_CALL_VN2;
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the specified instruction needs to be executed by
+     * the interpreter on its own. These are the instructions that wait for
+     * the user, play sounds or replace the machine state.
+     *
+     * @param info the instruction
+     * @return true if the instruction must not be part of a block
+     */
+    private boolean requiresInterpreter(final AbstractInstruction info) {
+
+        final int opcode = info.getOpcode();
+        if (info instanceof ExtendedInstruction) {
+
+            return opcode == ExtendedStaticInfo.OP_SAVE
+                    || opcode == ExtendedStaticInfo.OP_RESTORE
+                    || opcode == ExtendedStaticInfo.OP_SAVE_UNDO
+                    || opcode == ExtendedStaticInfo.OP_RESTORE_UNDO
+                    || opcode == ExtendedStaticInfo.OP_READ_MOUSE;
+
+        } else if (info instanceof Short0Instruction) {
+
+            return opcode == Short0StaticInfo.OP_SAVE
+                    || opcode == Short0StaticInfo.OP_RESTORE
+                    || opcode == Short0StaticInfo.OP_RESTART
+                    || opcode == Short0StaticInfo.OP_QUIT;
+
+        } else if (info instanceof VariableInstruction) {
+
+            return opcode == VariableStaticInfo.OP_SREAD
+                    || opcode == VariableStaticInfo.OP_READ_CHAR
+                    || opcode == VariableStaticInfo.OP_SOUND_EFFECT
+                    || opcode == VariableStaticInfo.OP_INPUTSTREAM;
+        }
+        return false;
+    }
+}
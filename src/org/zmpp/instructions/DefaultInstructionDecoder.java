@@ -20,10 +20,12 @@
  */
 package org.zmpp.instructions;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryAccessException;
 import org.zmpp.instructions.AbstractInstruction.InstructionForm;
 import org.zmpp.instructions.AbstractInstruction.OperandCount;
 import org.zmpp.vm.Instruction;
@@ -32,13 +34,69 @@ import org.zmpp.vm.Machine;
 
 public class DefaultInstructionDecoder implements InstructionDecoder {
 
-    private Map<Integer, Instruction> instructionCache;
+    /**
+     * The number of address bits covered by a single cache page.
+     */
+    private static final int PAGE_BITS = 10;
+
+    /**
+     * The number of instruction slots in a cache page.
+     */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    /**
+     * The largest possible story file (version 8) is 512 KB.
+     */
+    private static final int MAX_STORY_SIZE = 512 * 1024;
+
+    /**
+     * The instruction pairs that are fused by default. These are common
+     * idioms in Inform compiled code.
+     */
+    private static final String[][] DEFAULT_FUSION_PAIRS = {
+        {"LOAD", "JE"},
+        {"LOADW", "JE"},
+        {"GET_PROP", "JZ"},
+        {"TEST_ATTR", "JUMP"},
+        {"INC_CHK", "JUMP"},
+        {"DEC_CHK", "JUMP"},
+    };
+
+    /**
+     * Instructions that never continue with their successor, they can not be
+     * the first instruction of a fused pair.
+     */
+    private static final Set<String> UNFUSABLE = new HashSet<String>(
+            Arrays.asList("RTRUE", "RFALSE", "RET", "RET_POPPED", "PRINT_RET",
+                    "JUMP", "THROW", "QUIT", "RESTART"));
+
+    /**
+     * The decoded instructions, indexed by their address. Pages are allocated
+     * on demand, so only the regions that are actually executed occupy
+     * memory.
+     */
+    private Instruction[][] instructionCache;
+
+    /**
+     * The instruction pairs to fuse, as "FIRST SECOND" operation names.
+     */
+    private Set<String> fusionPairs;
+
+    /**
+     * The operation names that start a fused pair.
+     */
+    private Set<String> fusionFirstNames;
 
     /**
      * The Memory object.
      */
     private Memory memory;
 
+    /**
+     * The size of the story file, instructions can only lie below it.
+     */
+    private int storySize;
+
     /**
      * The machine state object.
      */
@@ -51,7 +109,43 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
      */
     public DefaultInstructionDecoder() {
 
-        instructionCache = new HashMap<Integer, Instruction>();
+        instructionCache = new Instruction[MAX_STORY_SIZE / PAGE_SIZE][];
+        fusionPairs = new HashSet<String>();
+        fusionFirstNames = new HashSet<String>();
+        for (String[] pair : DEFAULT_FUSION_PAIRS) {
+
+            addFusionPair(pair[0], pair[1]);
+        }
+    }
+
+    /**
+     * Adds an instruction pair to be decoded as a superinstruction. The
+     * operation names are the ones reported by the instruction's toString()
+     * method, e.g. "LOAD" and "JE". This only affects instructions that are
+     * decoded after the call.
+     *
+     * @param first the operation name of the first instruction
+     * @param second the operation name of the second instruction
+     * @throws IllegalArgumentException if the first instruction never
+     * continues with its successor
+     */
+    public void addFusionPair(final String first, final String second) {
+
+        if (UNFUSABLE.contains(first)) {
+
+            throw new IllegalArgumentException("can not fuse after " + first);
+        }
+        fusionPairs.add(first + " " + second);
+        fusionFirstNames.add(first);
+    }
+
+    /**
+     * Removes all instruction pairs, so no superinstructions are created.
+     */
+    public void clearFusionPairs() {
+
+        fusionPairs.clear();
+        fusionFirstNames.clear();
     }
 
     public void initialize(final Machine machine,
@@ -59,6 +153,7 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
 
         this.memory = memory;
         this.machine = machine;
+        storySize = getStorySize(machine);
     }
 
     /**
@@ -68,30 +163,137 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
      * @return the instruction at the specified address
      */
     public Instruction decodeInstruction(final int instructionAddress) {
-        final Integer key = Integer.valueOf(instructionAddress);
-        if (!instructionCache.containsKey(key)) {
-            AbstractInstruction info = createBasicInstructionInfo(instructionAddress);
-            int currentAddress = extractOperands(info, instructionAddress);
-            if (info.getInstructionForm() == InstructionForm.VARIABLE
-                    && info.getOperandCount() == OperandCount.C2OP) {
+        checkAddress(instructionAddress, storySize);
+        Instruction[] page = instructionCache[instructionAddress >>> PAGE_BITS];
+        if (page == null) {
+            page = new Instruction[PAGE_SIZE];
+            instructionCache[instructionAddress >>> PAGE_BITS] = page;
+        }
+        final int slot = instructionAddress & (PAGE_SIZE - 1);
+        Instruction instruction = page[slot];
+        if (instruction == null) {
+            instruction = fuse(decode(instructionAddress), instructionAddress);
+            page[slot] = instruction;
+        }
+        return instruction;
+    }
 
-                // Handle the VAR form of C2OP instructions here
-                final AbstractInstruction info2
-                        = new LongInstruction(machine, OperandCount.VAR, info.getOpcode());
+    /**
+     * Returns the number of bytes of the story file that can hold
+     * instructions, which is limited by the size of the instruction cache.
+     *
+     * @param machine the machine
+     * @return the size in bytes
+     */
+    static int getStorySize(final Machine machine) {
 
-                for (int i = 0; i < info.getNumOperands(); i++) {
+        return Math.min(machine.getGameData().getStoryImage().getSize(),
+                MAX_STORY_SIZE);
+    }
 
-                    info2.addOperand(info.getOperand(i));
-                }
-                info = info2;
+    /**
+     * Checks that an instruction address lies within the story file, so a
+     * jump or return to an invalid address faults before the address is
+     * used as an index into the instruction cache.
+     *
+     * @param instructionAddress the instruction's address
+     * @param storySize the size of the story file
+     * @throws MemoryAccessException if the address lies outside
+     */
+    static void checkAddress(final int instructionAddress,
+            final int storySize) {
+
+        if (instructionAddress < 0 || instructionAddress >= storySize) {
+            throw new MemoryAccessException(String.format(
+                    "instruction outside of the story file at $%05x",
+                    instructionAddress), instructionAddress);
+        }
+    }
+
+    /**
+     * Combines the specified instruction with its successor if the pair is
+     * one of the fusion pairs. The successor is decoded on its own, so a run
+     * of fusable instructions is not decoded recursively, and if it can not
+     * be decoded, e.g. because the first instruction is the last one in the
+     * story file, the first instruction is returned unfused.
+     *
+     * @param first the decoded instruction
+     * @param instructionAddress the instruction's address
+     * @return a FusedInstruction or the instruction itself
+     */
+    private Instruction fuse(final AbstractInstruction first,
+            final int instructionAddress) {
+
+        if (fusionFirstNames.isEmpty()) {
+            return first;
+        }
+        final String firstName = getOpName(first);
+        if (!fusionFirstNames.contains(firstName)) {
+            return first;
+        }
+        final int secondAddress = instructionAddress + first.getLength();
+        final AbstractInstruction second;
+        try {
+
+            checkAddress(secondAddress, storySize);
+            second = decode(secondAddress);
+        } catch (MemoryAccessException ex) {
+
+            return first;
+        }
+        if (second.getInputType() != Instruction.INPUT_NONE) {
+
+            // the CPU has to stop before an input instruction, so the output
+            // of the first instruction must be visible when it does
+            return first;
+        }
+        if (fusionPairs.contains(firstName + " " + getOpName(second))) {
+
+            return new FusedInstruction(machine, first, second, secondAddress);
+        }
+        return first;
+    }
+
+    /**
+     * Returns the operation name of the specified instruction.
+     *
+     * @param info the instruction
+     * @return the operation name
+     */
+    private String getOpName(final AbstractInstruction info) {
+
+        return info.getStaticInfo().getOpName(info.getOpcode(),
+                machine.getVersion());
+    }
+
+    /**
+     * Decodes the instruction at the specified address without consulting the
+     * instruction cache.
+     *
+     * @param instructionAddress the instruction's address
+     * @return the decoded instruction
+     */
+    private AbstractInstruction decode(final int instructionAddress) {
+        AbstractInstruction info = createBasicInstructionInfo(instructionAddress);
+        int currentAddress = extractOperands(info, instructionAddress);
+        if (info.getInstructionForm() == InstructionForm.VARIABLE
+                && info.getOperandCount() == OperandCount.C2OP) {
+
+            // Handle the VAR form of C2OP instructions here
+            final AbstractInstruction info2
+                    = LongInstruction.create(machine, OperandCount.VAR, info.getOpcode());
+
+            for (int i = 0; i < info.getNumOperands(); i++) {
+
+                info2.addOperand(info.getOperandType(i),
+                        info.getOperandValue(i));
             }
-            currentAddress = extractStoreVariable(info, currentAddress);
-            currentAddress = extractBranchOffset(info, currentAddress);
-            info.setLength(currentAddress - instructionAddress);
-            //return info;
-            instructionCache.put(key, info);
+            info = info2;
         }
-        return instructionCache.get(key);
+        currentAddress = extractStoreVariable(info, currentAddress);
+        currentAddress = extractBranchOffset(info, currentAddress);
+        info.setLength(currentAddress - instructionAddress);
+        return info;
     }
 
   // ***********************************************************************
@@ -120,7 +322,7 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
         } else if (0x00 <= firstByte && firstByte <= 0x7f) {
 
             opcode = firstByte & 0x1f; // Bottom five bits contain the opcode number
-            return new LongInstruction(machine, opcode);
+            return LongInstruction.create(machine, OperandCount.C2OP, opcode);
 
         } else if (0x80 <= firstByte && firstByte <= 0xbf) {
 
@@ -137,18 +339,18 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
                     return new PrintLiteralInstruction(machine, opcode, memory,
                             instructionAddress);
                 }
-                return new Short0Instruction(machine, opcode);
+                return Short0Instruction.create(machine, opcode);
 
             } else {
 
-                return new Short1Instruction(machine, opcode);
+                return Short1Instruction.create(machine, opcode);
             }
 
         } else {
 
             opcode = firstByte & 0x1f; // Bottom five bits contain the opcode number
             operandCount = (firstByte >= 0xe0) ? OperandCount.VAR : OperandCount.C2OP;
-            return new VariableInstruction(machine, operandCount, opcode);
+            return VariableInstruction.create(machine, operandCount, opcode);
         }
     }
 
@@ -272,15 +474,13 @@ public class DefaultInstructionDecoder implements InstructionDecoder {
         int nextAddress = currentAddress;
         if (optype == Operand.TYPENUM_LARGE_CONSTANT) {
 
-            info.addOperand(new Operand(optype,
-                    memory.readShort(nextAddress)));
+            info.addOperand(optype, memory.readShort(nextAddress));
             nextAddress += 2;
 
         } else if (optype == Operand.TYPENUM_VARIABLE
                 || optype == Operand.TYPENUM_SMALL_CONSTANT) {
 
-            info.addOperand(new Operand(optype,
-                    memory.readUnsignedByte(nextAddress)));
+            info.addOperand(optype, memory.readUnsignedByte(nextAddress));
 
             nextAddress += 1;
         }
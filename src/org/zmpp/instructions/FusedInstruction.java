@@ -0,0 +1,118 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Machine;
+
+/**
+ * A superinstruction that executes two adjacent instructions in one
+ * dispatch. The second instruction is only executed if the first one
+ * continues with its successor, so the program counter behaves exactly as if
+ * the instructions were executed one by one.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class FusedInstruction implements Instruction {
+
+    /**
+     * The machine object.
+     */
+    private Machine machine;
+
+    /**
+     * The first instruction.
+     */
+    private AbstractInstruction first;
+
+    /**
+     * The second instruction.
+     */
+    private Instruction second;
+
+    /**
+     * The address of the second instruction.
+     */
+    private int secondAddress;
+
+    /**
+     * Constructor.
+     *
+     * @param machine the machine object
+     * @param first the first instruction
+     * @param second the second instruction
+     * @param secondAddress the address of the second instruction
+     */
+    public FusedInstruction(final Machine machine,
+            final AbstractInstruction first, final Instruction second,
+            final int secondAddress) {
+
+        this.machine = machine;
+        this.first = first;
+        this.second = second;
+        this.secondAddress = secondAddress;
+    }
+
+    /**
+     * Returns the first instruction.
+     *
+     * @return the first instruction
+     */
+    public AbstractInstruction getFirst() {
+
+        return first;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() {
+
+        first.execute();
+        final Cpu cpu = machine.getCpu();
+        if (cpu.getProgramCounter() == secondAddress && cpu.isRunning()) {
+
+            second.execute();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isOutput() {
+
+        return first.isOutput() || second.isOutput();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getInputType() {
+
+        // the decoder never fuses an input instruction as second instruction
+        return first.getInputType();
+    }
+
+    public String toString() {
+
+        return first.toString() + " + " + second.toString();
+    }
+}
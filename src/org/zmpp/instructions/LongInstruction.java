@@ -63,6 +63,80 @@ public class LongInstruction extends AbstractInstruction {
         this.operandCount = operandCount;
     }
 
+    /**
+     * Creates the instruction object for the specified opcode. If the opcode
+     * is valid in the current story file version, frequently executed opcodes
+     * are resolved to a dedicated subclass, which executes its operation
+     * directly without a version check or an opcode switch.
+     *
+     * @param machine the machine state
+     * @param operandCount the operand count
+     * @param opcode the opcode
+     * @return the instruction object
+     */
+    public static LongInstruction create(final Machine machine,
+            final OperandCount operandCount, final int opcode) {
+
+        if (!isOpcodeAvailable(LongStaticInfo.getInstance(), opcode,
+                machine.getVersion())) {
+
+            return new LongInstruction(machine, operandCount, opcode);
+        }
+        switch (opcode) {
+
+            case LongStaticInfo.OP_JE:
+                return new Je(machine, operandCount);
+            case LongStaticInfo.OP_JL:
+                return new Jl(machine, operandCount);
+            case LongStaticInfo.OP_JG:
+                return new Jg(machine, operandCount);
+            case LongStaticInfo.OP_DEC_CHK:
+                return new DecChk(machine, operandCount);
+            case LongStaticInfo.OP_INC_CHK:
+                return new IncChk(machine, operandCount);
+            case LongStaticInfo.OP_JIN:
+                return new Jin(machine, operandCount);
+            case LongStaticInfo.OP_TEST:
+                return new Test(machine, operandCount);
+            case LongStaticInfo.OP_OR:
+                return new Or(machine, operandCount);
+            case LongStaticInfo.OP_AND:
+                return new And(machine, operandCount);
+            case LongStaticInfo.OP_TEST_ATTR:
+                return new TestAttr(machine, operandCount);
+            case LongStaticInfo.OP_SET_ATTR:
+                return new SetAttr(machine, operandCount);
+            case LongStaticInfo.OP_CLEAR_ATTR:
+                return new ClearAttr(machine, operandCount);
+            case LongStaticInfo.OP_STORE:
+                return new Store(machine, operandCount);
+            case LongStaticInfo.OP_INSERT_OBJ:
+                return new InsertObj(machine, operandCount);
+            case LongStaticInfo.OP_LOADW:
+                return new Loadw(machine, operandCount);
+            case LongStaticInfo.OP_LOADB:
+                return new Loadb(machine, operandCount);
+            case LongStaticInfo.OP_GET_PROP:
+                return new GetProp(machine, operandCount);
+            case LongStaticInfo.OP_GET_PROP_ADDR:
+                return new GetPropAddr(machine, operandCount);
+            case LongStaticInfo.OP_GET_NEXT_PROP:
+                return new GetNextProp(machine, operandCount);
+            case LongStaticInfo.OP_ADD:
+                return new Add(machine, operandCount);
+            case LongStaticInfo.OP_SUB:
+                return new Sub(machine, operandCount);
+            case LongStaticInfo.OP_MUL:
+                return new Mul(machine, operandCount);
+            case LongStaticInfo.OP_DIV:
+                return new Div(machine, operandCount);
+            case LongStaticInfo.OP_MOD:
+                return new Mod(machine, operandCount);
+            default:
+                return new LongInstruction(machine, operandCount, opcode);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -463,7 +537,7 @@ public class LongInstruction extends AbstractInstruction {
         final int stackFrame = getUnsignedValue(1);
 
         // Unwind the stack
-        final int currentStackFrame = getCpu().getRoutineContexts().size() - 1;
+        final int currentStackFrame = getCpu().getRoutineStackPointer() - 1;
         if (currentStackFrame < stackFrame) {
 
             getMachine().getCpu().halt("@throw from an invalid stack frame state");
@@ -483,7 +557,322 @@ public class LongInstruction extends AbstractInstruction {
     }
 
     private boolean isValidAttribute(final int attribute) {
-        final int numAttr = getStoryFileVersion() <= 3 ? 32 : 48;
-        return attribute >= 0 && attribute < numAttr;
+        return attribute >= 0
+                && attribute < getStoryProfile().getNumAttributes();
+    }
+
+  // ***********************************************************************
+    // ****** Opcode specific instructions, selected by create()
+    // ******************************************
+    private static final class Je extends LongInstruction {
+
+        Je(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_JE);
+        }
+
+        public void execute() {
+
+            super.je();
+        }
+    }
+
+    private static final class Jl extends LongInstruction {
+
+        Jl(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_JL);
+        }
+
+        public void execute() {
+
+            super.jl();
+        }
+    }
+
+    private static final class Jg extends LongInstruction {
+
+        Jg(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_JG);
+        }
+
+        public void execute() {
+
+            super.jg();
+        }
+    }
+
+    private static final class DecChk extends LongInstruction {
+
+        DecChk(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_DEC_CHK);
+        }
+
+        public void execute() {
+
+            super.dec_chk();
+        }
+    }
+
+    private static final class IncChk extends LongInstruction {
+
+        IncChk(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_INC_CHK);
+        }
+
+        public void execute() {
+
+            super.inc_chk();
+        }
+    }
+
+    private static final class Jin extends LongInstruction {
+
+        Jin(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_JIN);
+        }
+
+        public void execute() {
+
+            super.jin();
+        }
+    }
+
+    private static final class Test extends LongInstruction {
+
+        Test(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_TEST);
+        }
+
+        public void execute() {
+
+            super.test();
+        }
+    }
+
+    private static final class Or extends LongInstruction {
+
+        Or(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_OR);
+        }
+
+        public void execute() {
+
+            super.or();
+        }
+    }
+
+    private static final class And extends LongInstruction {
+
+        And(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_AND);
+        }
+
+        public void execute() {
+
+            super.and();
+        }
+    }
+
+    private static final class TestAttr extends LongInstruction {
+
+        TestAttr(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_TEST_ATTR);
+        }
+
+        public void execute() {
+
+            super.test_attr();
+        }
+    }
+
+    private static final class SetAttr extends LongInstruction {
+
+        SetAttr(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_SET_ATTR);
+        }
+
+        public void execute() {
+
+            super.set_attr();
+        }
+    }
+
+    private static final class ClearAttr extends LongInstruction {
+
+        ClearAttr(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_CLEAR_ATTR);
+        }
+
+        public void execute() {
+
+            super.clear_attr();
+        }
+    }
+
+    private static final class Store extends LongInstruction {
+
+        Store(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_STORE);
+        }
+
+        public void execute() {
+
+            super.store();
+        }
+    }
+
+    private static final class InsertObj extends LongInstruction {
+
+        InsertObj(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_INSERT_OBJ);
+        }
+
+        public void execute() {
+
+            super.insert_obj();
+        }
+    }
+
+    private static final class Loadw extends LongInstruction {
+
+        Loadw(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_LOADW);
+        }
+
+        public void execute() {
+
+            super.loadw();
+        }
+    }
+
+    private static final class Loadb extends LongInstruction {
+
+        Loadb(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_LOADB);
+        }
+
+        public void execute() {
+
+            super.loadb();
+        }
+    }
+
+    private static final class GetProp extends LongInstruction {
+
+        GetProp(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_GET_PROP);
+        }
+
+        public void execute() {
+
+            super.get_prop();
+        }
+    }
+
+    private static final class GetPropAddr extends LongInstruction {
+
+        GetPropAddr(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_GET_PROP_ADDR);
+        }
+
+        public void execute() {
+
+            super.get_prop_addr();
+        }
+    }
+
+    private static final class GetNextProp extends LongInstruction {
+
+        GetNextProp(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_GET_NEXT_PROP);
+        }
+
+        public void execute() {
+
+            super.get_next_prop();
+        }
+    }
+
+    private static final class Add extends LongInstruction {
+
+        Add(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_ADD);
+        }
+
+        public void execute() {
+
+            super.add();
+        }
+    }
+
+    private static final class Sub extends LongInstruction {
+
+        Sub(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_SUB);
+        }
+
+        public void execute() {
+
+            super.sub();
+        }
+    }
+
+    private static final class Mul extends LongInstruction {
+
+        Mul(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_MUL);
+        }
+
+        public void execute() {
+
+            super.mul();
+        }
+    }
+
+    private static final class Div extends LongInstruction {
+
+        Div(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_DIV);
+        }
+
+        public void execute() {
+
+            super.div();
+        }
+    }
+
+    private static final class Mod extends LongInstruction {
+
+        Mod(final Machine machine, final OperandCount operandCount) {
+
+            super(machine, operandCount, LongStaticInfo.OP_MOD);
+        }
+
+        public void execute() {
+
+            super.mod();
+        }
     }
 }
@@ -0,0 +1,383 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.zmpp.base.Memory;
+import org.zmpp.instructions.AbstractInstruction.InstructionForm;
+import org.zmpp.instructions.AbstractInstruction.OperandCount;
+import org.zmpp.vm.Instruction;
+import org.zmpp.vm.InstructionDecoder;
+import org.zmpp.vm.Machine;
+
+/**
+ * The opcode profiler is an instruction decoder that wraps every decoded
+ * instruction in order to count its executions and to sample its execution
+ * time. Statistics are kept per opcode, i.e. per instruction form, operand
+ * count and opcode number, and can be exported as CSV or JSON at any time.
+ *
+ * The profiler is only installed on request, so a machine without profiler
+ * does not pay for it. It should wrap a decoder that does not fuse
+ * instructions, otherwise superinstructions are not counted. The counters
+ * are not synchronized, an export while the game is running can be off by
+ * the instructions executed meanwhile.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class OpcodeProfiler implements InstructionDecoder {
+
+    /**
+     * Every n-th instruction execution is timed, n must be a power of 2.
+     */
+    private static final int SAMPLE_INTERVAL = 16;
+
+    /**
+     * The number of histogram buckets, bucket i counts the samples between
+     * 2^i and 2^(i+1) - 1 nanoseconds.
+     */
+    private static final int NUM_BUCKETS = 32;
+
+    /**
+     * The number of opcode numbers per operand count type.
+     */
+    private static final int NUM_OPCODES = 256;
+
+    private static final int NUM_KEYS = InstructionForm.values().length
+            * OperandCount.values().length * NUM_OPCODES;
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_STORY_SIZE = 512 * 1024;
+
+    /**
+     * The decoder that provides the instructions.
+     */
+    private InstructionDecoder decoder;
+
+    /**
+     * The profiled instructions, indexed by their address.
+     */
+    private Instruction[][] instructionCache;
+
+    /**
+     * The size of the story file, instructions can only lie below it.
+     */
+    private int storySize;
+
+    private long[] counts;
+    private long[] sampledNanos;
+    private long[][] histograms;
+    private InstructionForm[] forms;
+    private OperandCount[] operandCounts;
+    private int[] opcodes;
+    private String[] names;
+    private int executions;
+
+    /**
+     * Constructor.
+     *
+     * @param decoder the decoder to profile
+     */
+    public OpcodeProfiler(final InstructionDecoder decoder) {
+
+        this.decoder = decoder;
+        instructionCache = new Instruction[MAX_STORY_SIZE / PAGE_SIZE][];
+        reset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void initialize(final Machine machine, final Memory memory) {
+
+        decoder.initialize(machine, memory);
+        storySize = DefaultInstructionDecoder.getStorySize(machine);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Instruction decodeInstruction(final int instructionAddress) {
+
+        DefaultInstructionDecoder.checkAddress(instructionAddress, storySize);
+        Instruction[] page = instructionCache[instructionAddress >>> PAGE_BITS];
+        if (page == null) {
+            page = new Instruction[PAGE_SIZE];
+            instructionCache[instructionAddress >>> PAGE_BITS] = page;
+        }
+        final int slot = instructionAddress & (PAGE_SIZE - 1);
+        Instruction instruction = page[slot];
+        if (instruction == null) {
+            instruction = wrap(decoder.decodeInstruction(instructionAddress));
+            page[slot] = instruction;
+        }
+        return instruction;
+    }
+
+    /**
+     * Discards all collected statistics.
+     */
+    public final void reset() {
+
+        counts = new long[NUM_KEYS];
+        sampledNanos = new long[NUM_KEYS];
+        histograms = new long[NUM_KEYS][];
+        if (forms == null) {
+            forms = new InstructionForm[NUM_KEYS];
+            operandCounts = new OperandCount[NUM_KEYS];
+            opcodes = new int[NUM_KEYS];
+            names = new String[NUM_KEYS];
+        }
+    }
+
+    /**
+     * Returns the number of executions of the specified opcode.
+     *
+     * @param form the instruction form
+     * @param operandCount the operand count type
+     * @param opcode the opcode number
+     * @return the number of executions
+     */
+    public long getCount(final InstructionForm form,
+            final OperandCount operandCount, final int opcode) {
+
+        return counts[getKey(form, operandCount, opcode)];
+    }
+
+  // ***********************************************************************
+    // ****** Export
+    // ******************************************
+    /**
+     * Exports the statistics to the specified file. The format is JSON if the
+     * file name ends with ".json", CSV otherwise.
+     *
+     * @param file the output file
+     * @throws IOException if writing failed
+     */
+    public void exportTo(final File file) throws IOException {
+
+        final Writer writer = new FileWriter(file);
+        try {
+            if (file.getName().endsWith(".json")) {
+                writeJson(writer);
+            } else {
+                writeCsv(writer);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the statistics in CSV format, one line per executed opcode. The
+     * histogram columns contain the number of samples per power of 2 of
+     * nanoseconds.
+     *
+     * @param writer the writer
+     */
+    public void writeCsv(final Writer writer) {
+
+        final PrintWriter out = new PrintWriter(writer);
+        out.print("form,operand_count,opcode,name,count,samples,sampled_ns,"
+                + "mean_ns");
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            out.print(",hist_" + b);
+        }
+        out.println();
+        for (int key = 0; key < NUM_KEYS; key++) {
+
+            if (counts[key] == 0) {
+                continue;
+            }
+            final long samples = getNumSamples(key);
+            out.print(forms[key] + "," + operandCounts[key] + ","
+                    + opcodes[key] + "," + names[key] + "," + counts[key] + ","
+                    + samples + "," + sampledNanos[key] + ","
+                    + getMeanNanos(key, samples));
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                out.print("," + getBucket(key, b));
+            }
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the statistics in JSON format.
+     *
+     * @param writer the writer
+     */
+    public void writeJson(final Writer writer) {
+
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("{");
+        out.println("  \"sampleInterval\": " + SAMPLE_INTERVAL + ",");
+        out.println("  \"opcodes\": [");
+        boolean first = true;
+        for (int key = 0; key < NUM_KEYS; key++) {
+
+            if (counts[key] == 0) {
+                continue;
+            }
+            if (!first) {
+                out.println(",");
+            }
+            first = false;
+            final long samples = getNumSamples(key);
+            out.print("    {\"form\": \"" + forms[key] + "\", \"operandCount\": \""
+                    + operandCounts[key] + "\", \"opcode\": " + opcodes[key]
+                    + ", \"name\": \"" + names[key] + "\", \"count\": "
+                    + counts[key] + ", \"samples\": " + samples
+                    + ", \"sampledNanos\": " + sampledNanos[key]
+                    + ", \"meanNanos\": " + getMeanNanos(key, samples)
+                    + ", \"histogram\": [");
+            for (int b = 0; b < NUM_BUCKETS; b++) {
+                if (b > 0) {
+                    out.print(", ");
+                }
+                out.print(getBucket(key, b));
+            }
+            out.print("]}");
+        }
+        out.println();
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+  // ***********************************************************************
+    // ****** Private functions
+    // ******************************************
+    /**
+     * Wraps the specified instruction into a profiled instruction.
+     *
+     * @param instruction the instruction
+     * @return the profiled instruction
+     */
+    private Instruction wrap(final Instruction instruction) {
+
+        if (!(instruction instanceof AbstractInstruction)) {
+            return instruction;
+        }
+        final AbstractInstruction info = (AbstractInstruction) instruction;
+        final int key = getKey(info.getInstructionForm(),
+                info.getOperandCount(), info.getOpcode());
+        if (names[key] == null) {
+            forms[key] = info.getInstructionForm();
+            operandCounts[key] = info.getOperandCount();
+            opcodes[key] = info.getOpcode();
+            names[key] = info.getStaticInfo().getOpName(info.getOpcode(),
+                    info.getStoryFileVersion());
+        }
+        return new ProfiledInstruction(info, key);
+    }
+
+    private static int getKey(final InstructionForm form,
+            final OperandCount operandCount, final int opcode) {
+
+        return (form.ordinal() * OperandCount.values().length
+                + operandCount.ordinal()) * NUM_OPCODES + (opcode & 0xff);
+    }
+
+    private long getNumSamples(final int key) {
+
+        long samples = 0;
+        if (histograms[key] != null) {
+            for (long bucket : histograms[key]) {
+                samples += bucket;
+            }
+        }
+        return samples;
+    }
+
+    private long getMeanNanos(final int key, final long samples) {
+
+        return samples == 0 ? 0 : sampledNanos[key] / samples;
+    }
+
+    private long getBucket(final int key, final int bucket) {
+
+        return histograms[key] == null ? 0 : histograms[key][bucket];
+    }
+
+    /**
+     * Executes a profiled instruction.
+     *
+     * @param instruction the instruction
+     * @param key the opcode key
+     */
+    private void execute(final Instruction instruction, final int key) {
+
+        if ((++executions & (SAMPLE_INTERVAL - 1)) != 0) {
+
+            instruction.execute();
+            counts[key]++;
+            return;
+        }
+        final long start = System.nanoTime();
+        instruction.execute();
+        final long nanos = System.nanoTime() - start;
+        counts[key]++;
+        sampledNanos[key] += nanos;
+        if (histograms[key] == null) {
+            histograms[key] = new long[NUM_BUCKETS];
+        }
+        final int bucket = (nanos <= 0) ? 0
+                : Math.min(NUM_BUCKETS - 1,
+                        63 - Long.numberOfLeadingZeros(nanos));
+        histograms[key][bucket]++;
+    }
+
+    /**
+     * An instruction that reports its executions to the profiler.
+     */
+    private final class ProfiledInstruction implements Instruction {
+
+        private final AbstractInstruction instruction;
+        private final int key;
+
+        ProfiledInstruction(final AbstractInstruction instruction,
+                final int key) {
+            this.instruction = instruction;
+            this.key = key;
+        }
+
+        public void execute() {
+            OpcodeProfiler.this.execute(instruction, key);
+        }
+
+        public boolean isOutput() {
+            return instruction.isOutput();
+        }
+
+        public int getInputType() {
+            return instruction.getInputType();
+        }
+
+        public String toString() {
+            return instruction.toString();
+        }
+    }
+}
@@ -21,13 +21,14 @@
 package org.zmpp.instructions;
 
 /**
- * This is the definition of an instruction's operand. Each operand has an
- * operand type, and a value which is to be interpreted according to the type.
+ * This class defines the operand type numbers. Instructions store their
+ * operands as a packed type number and a raw value, the value is to be
+ * interpreted according to the type.
  *
  * @author Wei-ju Wu
  * @version 1.0
  */
-public class Operand {
+public final class Operand {
 
     /**
      * Type number for a large constant.
@@ -50,71 +51,8 @@ public class Operand {
     public static final byte TYPENUM_OMITTED = 0x03;
 
     /**
-     * The available operand types.
+     * Private constructor, this class only holds constants.
      */
-    public enum OperandType {
-
-        SMALL_CONSTANT, LARGE_CONSTANT, VARIABLE, OMITTED
-    }
-
-    /**
-     * This operand's type.
-     */
-    private OperandType type;
-
-    /**
-     * This operand's value.
-     */
-    private short value;
-
-    /**
-     * Constructor.
-     *
-     * @param typenum the type number, must be < 4
-     * @param value the operand value
-     */
-    public Operand(int typenum, short value) {
-
-        type = getOperandType(typenum);
-        this.value = value;
-    }
-
-    /**
-     * Determines the operand type from a two-bit value.
-     *
-     * @param typenum the type number
-     * @return the operand type
-     */
-    private static OperandType getOperandType(final int typenum) {
-
-        switch (typenum) {
-
-            case 0x00:
-                return OperandType.LARGE_CONSTANT;
-            case 0x01:
-                return OperandType.SMALL_CONSTANT;
-            case 0x02:
-                return OperandType.VARIABLE;
-            default:
-                return OperandType.OMITTED; // In fact, such a value should never exist..
-        }
-    }
-
-    /**
-     * Returns this operand's type.
-     *
-     * @return the operand type
-     */
-    public OperandType getType() {
-        return type;
-    }
-
-    /**
-     * The operand value.
-     *
-     * @return the value
-     */
-    public short getValue() {
-        return value;
+    private Operand() {
     }
 }
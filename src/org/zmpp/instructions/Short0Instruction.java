@@ -41,6 +41,39 @@ public class Short0Instruction extends AbstractInstruction {
         super(machineState, opcode);
     }
 
+    /**
+     * Creates the instruction object for the specified opcode. If the opcode
+     * is valid in the current story file version, frequently executed opcodes
+     * are resolved to a dedicated subclass, which executes its operation
+     * directly without a version check or an opcode switch.
+     *
+     * @param machine the machine state
+     * @param opcode the opcode
+     * @return the instruction object
+     */
+    public static Short0Instruction create(final Machine machine,
+            final int opcode) {
+
+        if (!isOpcodeAvailable(Short0StaticInfo.getInstance(), opcode,
+                machine.getVersion())) {
+
+            return new Short0Instruction(machine, opcode);
+        }
+        switch (opcode) {
+
+            case Short0StaticInfo.OP_RTRUE:
+                return new Rtrue(machine);
+            case Short0StaticInfo.OP_RFALSE:
+                return new Rfalse(machine);
+            case Short0StaticInfo.OP_RET_POPPED:
+                return new RetPopped(machine);
+            case Short0StaticInfo.OP_NEW_LINE:
+                return new NewLine(machine);
+            default:
+                return new Short0Instruction(machine, opcode);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -131,7 +164,63 @@ public class Short0Instruction extends AbstractInstruction {
     private void z_catch() {
 
         // Stores the index of the current stack frame
-        storeResult((short) (getCpu().getRoutineContexts().size() - 1));
+        storeResult((short) (getCpu().getRoutineStackPointer() - 1));
         nextInstruction();
     }
+
+  // ***********************************************************************
+    // ****** Opcode specific instructions, selected by create()
+    // ******************************************
+    private static final class Rtrue extends Short0Instruction {
+
+        Rtrue(final Machine machine) {
+
+            super(machine, Short0StaticInfo.OP_RTRUE);
+        }
+
+        public void execute() {
+
+            returnFromRoutine(TRUE);
+        }
+    }
+
+    private static final class Rfalse extends Short0Instruction {
+
+        Rfalse(final Machine machine) {
+
+            super(machine, Short0StaticInfo.OP_RFALSE);
+        }
+
+        public void execute() {
+
+            returnFromRoutine(FALSE);
+        }
+    }
+
+    private static final class RetPopped extends Short0Instruction {
+
+        RetPopped(final Machine machine) {
+
+            super(machine, Short0StaticInfo.OP_RET_POPPED);
+        }
+
+        public void execute() {
+
+            returnFromRoutine(getCpu().getVariable(0));
+        }
+    }
+
+    private static final class NewLine extends Short0Instruction {
+
+        NewLine(final Machine machine) {
+
+            super(machine, Short0StaticInfo.OP_NEW_LINE);
+        }
+
+        public void execute() {
+
+            getMachine().getOutput().newline();
+            nextInstruction();
+        }
+    }
 }
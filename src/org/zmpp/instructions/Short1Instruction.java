@@ -41,6 +41,61 @@ public class Short1Instruction extends AbstractInstruction {
         super(machineState, opcode);
     }
 
+    /**
+     * Creates the instruction object for the specified opcode. If the opcode
+     * is valid in the current story file version, frequently executed opcodes
+     * are resolved to a dedicated subclass, which executes its operation
+     * directly without a version check or an opcode switch.
+     *
+     * @param machine the machine state
+     * @param opcode the opcode
+     * @return the instruction object
+     */
+    public static Short1Instruction create(final Machine machine,
+            final int opcode) {
+
+        if (!isOpcodeAvailable(Short1StaticInfo.getInstance(), opcode,
+                machine.getVersion())) {
+
+            return new Short1Instruction(machine, opcode);
+        }
+        switch (opcode) {
+
+            case Short1StaticInfo.OP_JZ:
+                return new Jz(machine);
+            case Short1StaticInfo.OP_GET_SIBLING:
+                return new GetSibling(machine);
+            case Short1StaticInfo.OP_GET_CHILD:
+                return new GetChild(machine);
+            case Short1StaticInfo.OP_GET_PARENT:
+                return new GetParent(machine);
+            case Short1StaticInfo.OP_GET_PROP_LEN:
+                return new GetPropLen(machine);
+            case Short1StaticInfo.OP_INC:
+                return new Inc(machine);
+            case Short1StaticInfo.OP_DEC:
+                return new Dec(machine);
+            case Short1StaticInfo.OP_PRINT_ADDR:
+                return new PrintAddr(machine);
+            case Short1StaticInfo.OP_REMOVE_OBJ:
+                return new RemoveObj(machine);
+            case Short1StaticInfo.OP_PRINT_OBJ:
+                return new PrintObj(machine);
+            case Short1StaticInfo.OP_JUMP:
+                return new Jump(machine);
+            case Short1StaticInfo.OP_RET:
+                return new Ret(machine);
+            case Short1StaticInfo.OP_PRINT_PADDR:
+                return new PrintPaddr(machine);
+            case Short1StaticInfo.OP_LOAD:
+                return new Load(machine);
+            case Short1StaticInfo.OP_CALL_1S:
+                return new Call1s(machine);
+            default:
+                return new Short1Instruction(machine, opcode);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -279,4 +334,202 @@ public class Short1Instruction extends AbstractInstruction {
     private void call_1n() {
         call(0);
     }
+
+  // ***********************************************************************
+    // ****** Opcode specific instructions, selected by create()
+    // ******************************************
+    private static final class Jz extends Short1Instruction {
+
+        Jz(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_JZ);
+        }
+
+        public void execute() {
+
+            super.jz();
+        }
+    }
+
+    private static final class GetSibling extends Short1Instruction {
+
+        GetSibling(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_GET_SIBLING);
+        }
+
+        public void execute() {
+
+            super.get_sibling();
+        }
+    }
+
+    private static final class GetChild extends Short1Instruction {
+
+        GetChild(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_GET_CHILD);
+        }
+
+        public void execute() {
+
+            super.get_child();
+        }
+    }
+
+    private static final class GetParent extends Short1Instruction {
+
+        GetParent(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_GET_PARENT);
+        }
+
+        public void execute() {
+
+            super.get_parent();
+        }
+    }
+
+    private static final class GetPropLen extends Short1Instruction {
+
+        GetPropLen(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_GET_PROP_LEN);
+        }
+
+        public void execute() {
+
+            super.get_prop_len();
+        }
+    }
+
+    private static final class Inc extends Short1Instruction {
+
+        Inc(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_INC);
+        }
+
+        public void execute() {
+
+            super.inc();
+        }
+    }
+
+    private static final class Dec extends Short1Instruction {
+
+        Dec(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_DEC);
+        }
+
+        public void execute() {
+
+            super.dec();
+        }
+    }
+
+    private static final class PrintAddr extends Short1Instruction {
+
+        PrintAddr(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_PRINT_ADDR);
+        }
+
+        public void execute() {
+
+            super.print_addr();
+        }
+    }
+
+    private static final class RemoveObj extends Short1Instruction {
+
+        RemoveObj(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_REMOVE_OBJ);
+        }
+
+        public void execute() {
+
+            super.remove_obj();
+        }
+    }
+
+    private static final class PrintObj extends Short1Instruction {
+
+        PrintObj(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_PRINT_OBJ);
+        }
+
+        public void execute() {
+
+            super.print_obj();
+        }
+    }
+
+    private static final class Jump extends Short1Instruction {
+
+        Jump(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_JUMP);
+        }
+
+        public void execute() {
+
+            super.jump();
+        }
+    }
+
+    private static final class Ret extends Short1Instruction {
+
+        Ret(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_RET);
+        }
+
+        public void execute() {
+
+            super.ret();
+        }
+    }
+
+    private static final class PrintPaddr extends Short1Instruction {
+
+        PrintPaddr(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_PRINT_PADDR);
+        }
+
+        public void execute() {
+
+            super.print_paddr();
+        }
+    }
+
+    private static final class Load extends Short1Instruction {
+
+        Load(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_LOAD);
+        }
+
+        public void execute() {
+
+            super.load();
+        }
+    }
+
+    private static final class Call1s extends Short1Instruction {
+
+        Call1s(final Machine machine) {
+
+            super(machine, Short1StaticInfo.OP_CALL_1S);
+        }
+
+        public void execute() {
+
+            super.call_1s();
+        }
+    }
 }
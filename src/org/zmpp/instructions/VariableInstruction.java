@@ -21,6 +21,7 @@
 package org.zmpp.instructions;
 
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryAccessException;
 import org.zmpp.encoding.ZCharEncoder;
 import org.zmpp.media.SoundSystem;
 import org.zmpp.vm.Machine;
@@ -36,11 +37,28 @@ import org.zmpp.vm.TextCursor;
  */
 public class VariableInstruction extends AbstractInstruction {
 
+    /**
+     * The number of bytes scan_table reads from memory at first, every
+     * further read is four times as large, up to the maximum.
+     */
+    private static final int MIN_SCAN_CHUNK_SIZE = 16;
+
+    /**
+     * The maximum number of bytes scan_table reads from memory at once.
+     */
+    private static final int MAX_SCAN_CHUNK_SIZE = 1024;
+
     /**
      * The operand count.
      */
     private OperandCount operandCount;
 
+    /**
+     * The buffer for the chunks of scan_table, it is allocated on first use
+     * and kept, since the decoded instruction is cached for its address.
+     */
+    private byte[] scanBuffer;
+
     /**
      * Constructor.
      *
@@ -55,6 +73,49 @@ public class VariableInstruction extends AbstractInstruction {
         this.operandCount = operandCount;
     }
 
+    /**
+     * Creates the instruction object for the specified opcode. If the opcode
+     * is valid in the current story file version, frequently executed opcodes
+     * are resolved to a dedicated subclass, which executes its operation
+     * directly without a version check or an opcode switch.
+     *
+     * @param machine the machine state
+     * @param operandCount the operand count
+     * @param opcode the opcode
+     * @return the instruction object
+     */
+    public static VariableInstruction create(final Machine machine,
+            final OperandCount operandCount, final int opcode) {
+
+        if (operandCount != OperandCount.VAR
+                || !isOpcodeAvailable(VariableStaticInfo.getInstance(), opcode,
+                        machine.getVersion())) {
+
+            return new VariableInstruction(machine, operandCount, opcode);
+        }
+        switch (opcode) {
+
+            case VariableStaticInfo.OP_CALL:
+                return new Call(machine);
+            case VariableStaticInfo.OP_CALL_VN:
+                return new CallVn(machine);
+            case VariableStaticInfo.OP_STOREW:
+                return new Storew(machine);
+            case VariableStaticInfo.OP_STOREB:
+                return new Storeb(machine);
+            case VariableStaticInfo.OP_PUT_PROP:
+                return new PutProp(machine);
+            case VariableStaticInfo.OP_PRINT_CHAR:
+                return new PrintChar(machine);
+            case VariableStaticInfo.OP_PRINT_NUM:
+                return new PrintNum(machine);
+            case VariableStaticInfo.OP_PUSH:
+                return new Push(machine);
+            default:
+                return new VariableInstruction(machine, operandCount, opcode);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -79,6 +140,22 @@ public class VariableInstruction extends AbstractInstruction {
         return VariableStaticInfo.getInstance();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public int getInputType() {
+
+        if (operandCount == OperandCount.VAR) {
+
+            if (getOpcode() == VariableStaticInfo.OP_SREAD) {
+                return INPUT_LINE;
+            } else if (getOpcode() == VariableStaticInfo.OP_READ_CHAR) {
+                return INPUT_CHAR;
+            }
+        }
+        return INPUT_NONE;
+    }
+
     /**
      * Returns the memory access object.
      *
@@ -507,28 +584,113 @@ public class VariableInstruction extends AbstractInstruction {
         }
         final int fieldlen = form & 0x7f;
         final boolean isWordTable = (form & 0x80) > 0;
-        int pointer = table;
-        boolean found = false;
+        final int pointer = scanTable(memory, x, table, length, fieldlen,
+                isWordTable);
+        final boolean found = pointer >= 0;
+        storeResult((short) (found ? pointer : 0));
+    //System.out.printf("@SCAN_TABLE, X: %d, TABLE: %d LEN: %d POINTER: %d\n",
+        //  x, table, length, pointer);
+        branchOnTest(found);
+    }
 
-        for (int i = 0; i < length; i++) {
-            final short current = isWordTable ? memory.readShort(pointer)
-                    : memory.readByte(pointer);
-            if (current == x) {
-                storeResult((short) pointer);
-                found = true;
-                break;
+    /**
+     * Searches a table for the specified value. The entries are read into an
+     * array in chunks, which are searched by a loop for the entry size. The
+     * chunks start small and grow, so a match near the start of a long table
+     * does not read much more than the entries before it. A chunk that
+     * reaches past the end of memory is searched entry by entry, so the
+     * search only fails if it gets to an entry outside of memory. As in the
+     * per entry comparison, a byte entry is sign extended, so it can only
+     * match a value between -128 and 127.
+     *
+     * @param memory the memory
+     * @param x the value to search
+     * @param table the table address
+     * @param length the number of entries
+     * @param fieldlen the distance between two entries
+     * @param isWordTable true if the entries are words, false for bytes
+     * @return the address of the first matching entry or -1 if not found
+     */
+    private int scanTable(final Memory memory, final short x,
+            final int table, final int length, final int fieldlen,
+            final boolean isWordTable) {
+
+        if (length <= 0 || (!isWordTable && x != (byte) x)) {
+            return -1;
+        }
+        final int entrySize = isWordTable ? 2 : 1;
+        // with a field length of 0, every entry is the first one
+        final int numEntries = (fieldlen == 0) ? 1 : length;
+        final byte high = (byte) (x >> 8);
+        final byte low = (byte) x;
+        int chunkSize = MIN_SCAN_CHUNK_SIZE;
+
+        for (int first = 0, count; first < numEntries; first += count) {
+
+            count = (fieldlen == 0) ? 1
+                    : Math.min(Math.max(1, chunkSize / fieldlen),
+                    numEntries - first);
+            chunkSize = Math.min(chunkSize * 4, MAX_SCAN_CHUNK_SIZE);
+            final int start = table + first * fieldlen;
+            final int numBytes = (count - 1) * fieldlen + entrySize;
+            if (scanBuffer == null || scanBuffer.length < numBytes) {
+                scanBuffer = new byte[Math.max(numBytes, MIN_SCAN_CHUNK_SIZE)];
+            }
+            final byte[] chunk = scanBuffer;
+            try {
+                memory.readBytes(start, chunk, 0, numBytes);
+            } catch (MemoryAccessException ex) {
+
+                final int pointer = scanEntries(memory, x, start, count,
+                        fieldlen, isWordTable);
+                if (pointer >= 0) {
+                    return pointer;
+                }
+                continue;
+            }
+            if (isWordTable) {
+
+                for (int i = 0, offset = 0; i < count; i++, offset += fieldlen) {
+                    if (chunk[offset] == high && chunk[offset + 1] == low) {
+                        return start + offset;
+                    }
+                }
+            } else {
+
+                for (int i = 0, offset = 0; i < count; i++, offset += fieldlen) {
+                    if (chunk[offset] == low) {
+                        return start + offset;
+                    }
+                }
             }
-            pointer += fieldlen;
         }
+        return -1;
+    }
 
-        // not found
-        if (!found) {
+    /**
+     * Searches the specified entries one at a time, for a chunk that could
+     * not be read as a whole.
+     *
+     * @param memory the memory
+     * @param x the value to search
+     * @param start the address of the first entry
+     * @param count the number of entries
+     * @param fieldlen the distance between two entries
+     * @param isWordTable true if the entries are words, false for bytes
+     * @return the address of the first matching entry or -1 if not found
+     */
+    private static int scanEntries(final Memory memory, final short x,
+            final int start, final int count, final int fieldlen,
+            final boolean isWordTable) {
 
-            storeResult((short) 0);
+        for (int i = 0, pointer = start; i < count; i++, pointer += fieldlen) {
+            final short value = isWordTable ? memory.readShort(pointer)
+                    : memory.readByte(pointer);
+            if (value == x) {
+                return pointer;
+            }
         }
-    //System.out.printf("@SCAN_TABLE, X: %d, TABLE: %d LEN: %d POINTER: %d\n",
-        //  x, table, length, pointer);
-        branchOnTest(found);
+        return -1;
     }
 
     private void read_char() {
@@ -576,7 +738,7 @@ public class VariableInstruction extends AbstractInstruction {
     private void check_arg_count() {
         final int argumentNumber = getUnsignedValue(0);
         final int currentNumArgs
-                = getCpu().getCurrentRoutineContext().getNumArguments();
+                = getCpu().getCurrentNumArguments();
         branchOnTest(argumentNumber <= currentNumArgs);
     }
 
@@ -589,32 +751,32 @@ public class VariableInstruction extends AbstractInstruction {
         if (second == 0) {
 
             // Clear size bytes of first
-            size = Math.abs(size);
-            for (int i = 0; i < size; i++) {
-
-                memory.writeByte(first + i, (byte) 0);
-            }
-
-        } else {
+            memory.fill(first, (byte) 0, Math.abs(size));
 
-            if (size < 0 || first > second) {
+        } else if (size < 0) {
 
-                // copy forward
-                size = Math.abs(size);
-                for (int i = 0; i < size; i++) {
+            // copy forward, even if this overwrites the source
+            size = Math.abs(size);
+            final int distance = second - first;
+            if (distance <= 0 || distance >= size) {
 
-                    memory.writeByte(second + i, memory.readByte(first + i));
-                }
+                // the same as a copy of the original source
+                memory.copyBytes(first, second, size);
 
             } else {
 
-                // backwards
-                size = Math.abs(size);
-                for (int i = size - 1; i >= 0; i--) {
+                // the source repeats with a period of distance bytes
+                for (int offset = 0; offset < size; offset += distance) {
 
-                    memory.writeByte(second + i, memory.readByte(first + i));
+                    memory.copyBytes(first + offset, second + offset,
+                            Math.min(distance, size - offset));
                 }
             }
+
+        } else {
+
+            // the table is not corrupted if the ranges overlap
+            memory.copyBytes(first, second, size);
         }
         nextInstruction();
     }
@@ -673,4 +835,111 @@ public class VariableInstruction extends AbstractInstruction {
                 length, codedText);
         nextInstruction();
     }
+
+  // ***********************************************************************
+    // ****** Opcode specific instructions, selected by create()
+    // ******************************************
+    private static final class Call extends VariableInstruction {
+
+        Call(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_CALL);
+        }
+
+        public void execute() {
+
+            super.call();
+        }
+    }
+
+    private static final class CallVn extends VariableInstruction {
+
+        CallVn(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_CALL_VN);
+        }
+
+        public void execute() {
+
+            super.call();
+        }
+    }
+
+    private static final class Storew extends VariableInstruction {
+
+        Storew(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_STOREW);
+        }
+
+        public void execute() {
+
+            super.storew();
+        }
+    }
+
+    private static final class Storeb extends VariableInstruction {
+
+        Storeb(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_STOREB);
+        }
+
+        public void execute() {
+
+            super.storeb();
+        }
+    }
+
+    private static final class PutProp extends VariableInstruction {
+
+        PutProp(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_PUT_PROP);
+        }
+
+        public void execute() {
+
+            super.put_prop();
+        }
+    }
+
+    private static final class PrintChar extends VariableInstruction {
+
+        PrintChar(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_PRINT_CHAR);
+        }
+
+        public void execute() {
+
+            super.print_char();
+        }
+    }
+
+    private static final class PrintNum extends VariableInstruction {
+
+        PrintNum(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_PRINT_NUM);
+        }
+
+        public void execute() {
+
+            super.print_num();
+        }
+    }
+
+    private static final class Push extends VariableInstruction {
+
+        Push(final Machine machine) {
+
+            super(machine, OperandCount.VAR, VariableStaticInfo.OP_PUSH);
+        }
+
+        public void execute() {
+
+            super.push();
+        }
+    }
 }
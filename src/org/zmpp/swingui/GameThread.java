@@ -21,11 +21,15 @@
 package org.zmpp.swingui;
 
 import java.awt.EventQueue;
+import java.text.MessageFormat;
 
 import javax.swing.JComponent;
+import javax.swing.JOptionPane;
 
-import org.zmpp.vm.Instruction;
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Cpu.RunStatus;
 import org.zmpp.vm.Machine;
+import org.zmpp.vm.MachineFault;
 import org.zmpp.vm.ScreenModel;
 
 public class GameThread extends Thread {
@@ -61,15 +65,40 @@ public class GameThread extends Thread {
         } catch (Exception ex) {
         }
 
+        // The input instructions block in this thread until the user typed
+        // something, so the status that run() returns for them only means
+        // that the next run() executes the pending input instruction.
+        // In debug mode single steps are taken to trace the program counter.
+        final Cpu cpu = machine.getCpu();
+        final int stepsPerRun = Main.DEBUG ? 1 : Integer.MAX_VALUE;
         int line = 1;
-        while (machine.getCpu().isRunning()) {
-            Instruction instr = machine.getCpu().nextStep();
+        while (cpu.isRunning()) {
             if (Main.DEBUG) {
-                System.out.println(String.format("%04d - %05x: %s", line,
-                        machine.getCpu().getProgramCounter(), instr.toString()));
+                System.out.println(String.format("%04d - %05x", line,
+                        cpu.getProgramCounter()));
+            }
+            if (cpu.run(stepsPerRun) == RunStatus.FAULT) {
+                showFault(cpu.getFault());
             }
-            instr.execute();
             line++;
         }
     }
+
+    /**
+     * Reports a fatal error of the story, the error message was already
+     * printed to the screen when the machine halted.
+     *
+     * @param fault the fault
+     */
+    private void showFault(final MachineFault fault) {
+        EventQueue.invokeLater(new Runnable() {
+            public void run() {
+                JOptionPane.showMessageDialog((JComponent) screen,
+                        MessageFormat.format(Main.getMessage("error.fault.msg"),
+                        fault.getMessage()),
+                        Main.getMessage("error.fault.title"),
+                        JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
 }
@@ -32,6 +32,9 @@ import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
+import org.zmpp.instructions.OpcodeProfiler;
+import org.zmpp.vm.RoutineProfiler;
+
 /**
  * This class starts the ZMPP swing interface.
  *
@@ -173,6 +176,8 @@ public class Main {
     private static void runStory(ApplicationMachineFactory factory) {
         try {
             factory.buildMachine();
+            exportProfilesOnExit(factory.getOpcodeProfiler(),
+                    factory.getRoutineProfiler());
             ZmppFrame frame = factory.getUI();
             frame.startMachine();
             frame.pack();
@@ -184,6 +189,34 @@ public class Main {
         }
     }
 
+    /**
+     * Writes the opcode profile and the routine profile to the files named by
+     * the "zmpp.profile" and "zmpp.routineprofile" system properties when the
+     * application exits.
+     *
+     * @param profiler the opcode profiler, can be null
+     * @param routineProfiler the routine profiler, can be null
+     */
+    private static void exportProfilesOnExit(final OpcodeProfiler profiler,
+            final RoutineProfiler routineProfiler) {
+        if (profiler != null || routineProfiler != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                public void run() {
+                    try {
+                        if (profiler != null) {
+                            profiler.exportTo(new File(System.getProperty("zmpp.profile")));
+                        }
+                        if (routineProfiler != null) {
+                            routineProfiler.exportTo(new File(System.getProperty("zmpp.routineprofile")));
+                        }
+                    } catch (IOException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            });
+        }
+    }
+
     private static boolean isZblorbSuffix(String filename) {
         return filename.endsWith("zblorb") || filename.endsWith("zlb");
     }
@@ -290,7 +290,8 @@ public class Viewport6 extends JComponent implements ScreenModel6, Viewport {
 
         ZsciiString str = new ZsciiString(zchars);
         int textwidth
-                = canvas.getStringWidth(windows[currentwindow].getFont(), str.toString());
+                = canvas.getStringWidth(windows[currentwindow].getFont(),
+                        str.toString(machine.getGameData().getZsciiEncoding()));
         machine.getGameData().getStoryFileHeader().setOutputStream3TextWidth(textwidth);
     }
 
@@ -234,7 +234,7 @@ public abstract class AbstractObjectTree implements ObjectTree {
     }
 
     private void reportPropertyNotAvailable(int objectNum, int property) {
-        throw new IllegalArgumentException("Property " + property
+        throw new StoryException("Property " + property
                 + " of object " + objectNum + " is not available.");
     }
 
@@ -32,6 +32,15 @@ public interface Cpu {
         STACK, LOCAL, GLOBAL
     }
 
+    /**
+     * The reasons for run() to return. FAULT means the story caused an error
+     * and was halted, getFault() describes it.
+     */
+    enum RunStatus {
+
+        NEEDS_LINE_INPUT, NEEDS_CHAR_INPUT, HALTED, BUDGET_EXHAUSTED, FAULT
+    }
+
     /**
      * Resets this object to initial state.
      */
@@ -58,6 +67,14 @@ public interface Cpu {
      */
     void halt(String errormsg);
 
+    /**
+     * Installs a routine profiler, which is notified about every executed
+     * instruction and every routine call and return.
+     *
+     * @param profiler the profiler, null to disable profiling
+     */
+    void setRoutineProfiler(RoutineProfiler profiler);
+
     /**
      * Returns the next instruction.
      *
@@ -65,6 +82,28 @@ public interface Cpu {
      */
     Instruction nextStep();
 
+    /**
+     * Executes up to the specified number of steps. The CPU stops in front of
+     * an input instruction and reports which kind of input it needs, the next
+     * call executes that instruction first, so the input has to be provided
+     * before. A step is a single dispatch, i.e. a basic block or a
+     * superinstruction counts as one step. An invalid memory access or a
+     * StoryException halts the machine with a fault, any other runtime
+     * exception is a defect of the interpreter and is passed to the caller.
+     *
+     * @param maxSteps the maximum number of steps
+     * @return the reason for stopping
+     */
+    RunStatus run(int maxSteps);
+
+    /**
+     * Returns the fault that halted the machine during run(). The fault
+     * remains until the CPU is reset, e.g. by a restart or restore.
+     *
+     * @return the fault or null if none occurred
+     */
+    MachineFault getFault();
+
     /**
      * Translates a packed address into a byte address.
      *
@@ -203,7 +242,8 @@ public interface Cpu {
     /**
      * Returns the state of the current routine context stack as a non-
      * modifiable List. This is exposed to PortableGameState to take a machine
-     * state snapshot.
+     * state snapshot. The contexts are copies of the call frames, changing
+     * them does not affect the machine.
      *
      * @return the list of routine contexts
      */
@@ -218,24 +258,38 @@ public interface Cpu {
     void setRoutineContexts(List<RoutineContext> contexts);
 
     /**
-     * Returns the current routine context without affecting the state of the
-     * machine.
+     * Returns a copy of the current routine context without affecting the
+     * state of the machine.
      *
      * @return the current routine context
      */
     RoutineContext getCurrentRoutineContext();
 
+    /**
+     * Returns the number of arguments the current routine was called with.
+     *
+     * @return the number of arguments
+     */
+    int getCurrentNumArguments();
+
+    /**
+     * Returns the number of routine contexts on the routine context stack.
+     *
+     * @return the routine stack pointer
+     */
+    int getRoutineStackPointer();
+
     /**
      * Performs a routine call.
      *
      * @param routineAddress the packed routine address
      * @param returnAddress the return address
-     * @param args the argument list
+     * @param args the argument array, can be null if numArgs is 0
+     * @param numArgs the number of arguments in args
      * @param returnVariable the return variable or DISCARD_RESULT
-     * @return the routine context created
      */
-    RoutineContext call(int routineAddress, int returnAddress, short[] args,
-            short returnVariable);
+    void call(int routineAddress, int returnAddress, short[] args,
+            int numArgs, short returnVariable);
 
   // ***********************************************************************
     // **** Interrupt routines
@@ -24,9 +24,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.zmpp.base.CopyOnWriteMemory;
 import org.zmpp.base.Interruptable;
 import org.zmpp.base.Memory;
+import org.zmpp.base.MemoryAccessException;
 import org.zmpp.encoding.ZsciiString;
+import org.zmpp.vmutil.CallFrameStack;
 import org.zmpp.vmutil.FastShortStack;
 
 public class CpuImpl implements Cpu, Interruptable {
@@ -36,6 +39,37 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     private static final int STACKSIZE = 32768;
 
+    /**
+     * The initial number of call frames, the frame stack grows on demand.
+     */
+    private static final int INITIAL_FRAMES = 64;
+
+    /**
+     * The maximum call depth, deeper calls are faults, so a story that
+     * recurses without end stops before it exhausts the heap.
+     */
+    private static final int MAX_FRAMES = 4096;
+
+    /**
+     * The maximum number of local variables of a routine.
+     */
+    private static final int MAX_LOCALS = 15;
+
+    /**
+     * The number of address bits covered by a routine cache page.
+     */
+    private static final int ROUTINE_PAGE_BITS = 10;
+
+    /**
+     * The number of slots in a routine cache page.
+     */
+    private static final int ROUTINE_PAGE_SIZE = 1 << ROUTINE_PAGE_BITS;
+
+    /**
+     * The largest possible story file (version 8) is 512 KB.
+     */
+    private static final int MAX_STORY_SIZE = 512 * 1024;
+
     /**
      * The machine object.
      */
@@ -52,9 +86,32 @@ public class CpuImpl implements Cpu, Interruptable {
     private FastShortStack stack;
 
     /**
-     * The routine info.
+     * The routine call frames.
+     */
+    private CallFrameStack frames;
+
+    /**
+     * The value returned by the routine that was popped last.
+     */
+    private short lastReturnValue;
+
+    /**
+     * The version dependent constants of the story.
+     */
+    private StoryProfile profile;
+
+    /**
+     * The decoded routine headers, indexed by routine address. Routines are
+     * immutable unless they lie in dynamic memory, those are not cached.
+     */
+    private RoutineHeader[][] routineCache;
+
+    /**
+     * The routine headers from this address on are cached. If the story may
+     * write to static and high memory, no routine header is cached.
      */
-    private List<RoutineContext> routineContextStack;
+    private int routineCacheStart;
+
 
     /**
      * The start of global variables.
@@ -71,12 +128,29 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     private boolean running;
 
+    /**
+     * The routine profiler, null if profiling is disabled.
+     */
+    private RoutineProfiler profiler;
+
+    /**
+     * The input instruction run() stopped in front of.
+     */
+    private Instruction inputInstruction;
+
+    /**
+     * The fault that halted the machine, null if none occurred.
+     */
+    private MachineFault fault;
+
     public CpuImpl(final Machine machine, final InstructionDecoder decoder) {
 
         super();
         this.machine = machine;
         this.decoder = decoder;
         this.running = true;
+        this.routineCache
+                = new RoutineHeader[MAX_STORY_SIZE / ROUTINE_PAGE_SIZE][];
     }
 
     public void reset() {
@@ -84,13 +158,23 @@ public class CpuImpl implements Cpu, Interruptable {
         final GameData gamedata = machine.getGameData();
         decoder.initialize(machine, gamedata.getMemory());
         stack = new FastShortStack(STACKSIZE);
-        routineContextStack = new ArrayList<RoutineContext>();
-        globalsAddress = gamedata.getStoryFileHeader().getGlobalsAddress();
+        frames = new CallFrameStack(INITIAL_FRAMES, MAX_FRAMES);
+        inputInstruction = null;
+        fault = null;
+        if (profiler != null) {
+            profiler.stackReplaced(0);
+        }
+        profile = gamedata.getStoryProfile();
+        globalsAddress = profile.getGlobalsAddress();
+        final Memory memory = gamedata.getMemory();
+        routineCacheStart = (memory instanceof CopyOnWriteMemory
+                && ((CopyOnWriteMemory) memory).isStaticWritable())
+                ? Integer.MAX_VALUE : profile.getStaticsAddress();
 
-        if (gamedata.getStoryFileHeader().getVersion() == 6) {
+        if (profile.getVersion() == 6) {
 
             // Call main function in version 6
-            call(gamedata.getStoryFileHeader().getProgramStart(), 0, new short[0],
+            call(gamedata.getStoryFileHeader().getProgramStart(), 0, null, 0,
                     (short) 0);
 
         } else {
@@ -120,41 +204,86 @@ public class CpuImpl implements Cpu, Interruptable {
         programCounter += offset;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void setRoutineProfiler(final RoutineProfiler profiler) {
+
+        this.profiler = profiler;
+    }
+
     /**
      * {@inheritDoc}
      */
     public Instruction nextStep() {
 
+        if (profiler != null) {
+            profiler.countInstruction();
+        }
         return decoder.decodeInstruction(getProgramCounter());
     }
 
     /**
      * {@inheritDoc}
      */
-    public int translatePackedAddress(final int packedAddress,
-            final boolean isCall) {
+    public RunStatus run(final int maxSteps) {
+
+        // a single handler outside of the loop, the steps do not pay for it
+        try {
+            for (int steps = 0; steps < maxSteps; steps++) {
+
+                if (!running) {
+                    return RunStatus.HALTED;
+                }
+                final Instruction instruction;
+                if (inputInstruction != null) {
+
+                    // the caller provided the input the instruction waits for
+                    instruction = inputInstruction;
+                    inputInstruction = null;
+                } else {
+
+                    instruction = nextStep();
+                    final int inputType = instruction.getInputType();
+                    if (inputType != Instruction.INPUT_NONE) {
+
+                        inputInstruction = instruction;
+                        return (inputType == Instruction.INPUT_LINE)
+                                ? RunStatus.NEEDS_LINE_INPUT
+                                : RunStatus.NEEDS_CHAR_INPUT;
+                    }
+                }
+                instruction.execute();
+            }
+        } catch (MemoryAccessException ex) {
 
-        // Version specific packed address translation
-        final GameData gamedata = machine.getGameData();
+            fault(ex);
+            return RunStatus.FAULT;
+        } catch (StoryException ex) {
 
-        switch (gamedata.getStoryFileHeader().getVersion()) {
-
-            case 1:
-            case 2:
-            case 3:
-                return packedAddress * 2;
-            case 4:
-            case 5:
-                return packedAddress * 4;
-            case 6:
-            case 7:
-                return packedAddress * 4 + 8
-                        * (isCall ? gamedata.getStoryFileHeader().getRoutineOffset()
-                        : gamedata.getStoryFileHeader().getStaticStringOffset());
-            case 8:
-            default:
-                return packedAddress * 8;
+            fault(ex);
+            return RunStatus.FAULT;
         }
+        return running ? RunStatus.BUDGET_EXHAUSTED : RunStatus.HALTED;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public MachineFault getFault() {
+
+        return fault;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int translatePackedAddress(final int packedAddress,
+            final boolean isCall) {
+
+        // The version specific translation is precomputed in the profile
+        return isCall ? profile.unpackRoutineAddress(packedAddress)
+                : profile.unpackStringAddress(packedAddress);
     }
 
     /**
@@ -171,10 +300,34 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     public void halt(final String errormsg) {
 
-        machine.getOutput().print(new ZsciiString(errormsg));
+        machine.getOutput().print(new ZsciiString(errormsg,
+                machine.getGameData().getZsciiEncoding()));
         running = false;
     }
 
+    /**
+     * Halts the machine because of the specified exception, which was thrown
+     * while executing the instruction at the program counter.
+     *
+     * @param cause the exception
+     */
+    private void fault(final RuntimeException cause) {
+
+        final RoutineContext routine = (frames.size() == 0) ? null
+                : getCurrentRoutineContext();
+        fault = new MachineFault(programCounter,
+                (routine == null) ? -1 : routine.getStartAddress(),
+                frames.size(), cause);
+        executeInterrupt = false;
+        try {
+            halt(fault.getMessage());
+        } catch (RuntimeException ex) {
+
+            // the output failed as well, e.g. a faulty memory stream
+            running = false;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -210,11 +363,10 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     private void setStackPointer(final int stackpointer) {
 
-        // remove the last diff elements
-        final int diff = stack.getStackPointer() - stackpointer;
-        for (int i = 0; i < diff; i++) {
+        // remove the elements above the new stack pointer
+        if (stackpointer < stack.getStackPointer()) {
 
-            stack.pop();
+            stack.setStackPointer(stackpointer);
         }
     }
 
@@ -294,7 +446,7 @@ public class CpuImpl implements Cpu, Interruptable {
 
             final int localVarNumber = getLocalVariableNumber(variableNumber);
             checkLocalVariableAccess(localVarNumber);
-            return getCurrentRoutineContext().getLocalVariable(localVarNumber);
+            return frames.getLocalVariable(localVarNumber);
 
         } else { // GLOBAL
 
@@ -309,8 +461,8 @@ public class CpuImpl implements Cpu, Interruptable {
      * @return the invocation stack pointer
      */
     private int getInvocationStackPointer() {
-        return getCurrentRoutineContext() == null ? 0
-                : getCurrentRoutineContext().getInvocationStackPointer();
+        return frames.size() == 0 ? 0
+                : frames.getInvocationStackPointer(frames.size() - 1);
     }
 
     /**
@@ -323,7 +475,7 @@ public class CpuImpl implements Cpu, Interruptable {
         } else if (varType == Cpu.VariableType.LOCAL) {
             final int localVarNumber = getLocalVariableNumber(variableNumber);
             checkLocalVariableAccess(localVarNumber);
-            getCurrentRoutineContext().setLocalVariable(localVarNumber, value);
+            frames.setLocalVariable(localVarNumber, value);
         } else {
             machine.getGameData().getMemory().writeShort(globalsAddress
                     + (getGlobalVariableNumber(variableNumber) * 2), value);
@@ -352,28 +504,37 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     public void pushRoutineContext(final RoutineContext routineContext) {
         routineContext.setInvocationStackPointer(getStackPointer());
-        routineContextStack.add(routineContext);
+        pushFrame(routineContext);
+        if (profiler != null) {
+            profiler.enter(routineContext.getStartAddress());
+        }
     }
 
     /**
      * {@inheritDoc}
      */
     public void popRoutineContext(final short returnValue) {
-        if (routineContextStack.size() > 0) {
-            final RoutineContext popped
-                    = routineContextStack.remove(routineContextStack.size() - 1);
-            popped.setReturnValue(returnValue);
+        if (frames.size() > 0) {
+            final int top = frames.size() - 1;
+            final int invocationStackPointer
+                    = frames.getInvocationStackPointer(top);
+            final int returnAddress = frames.getReturnAddress(top);
+            final int returnVariable = frames.getReturnVariable(top);
+            frames.pop();
+            lastReturnValue = returnValue;
+            if (profiler != null) {
+                profiler.exit();
+            }
 
             // Restore stack pointer and pc
-            setStackPointer(popped.getInvocationStackPointer());
-            setProgramCounter(popped.getReturnAddress());
-            final int returnVariable = popped.getReturnVariable();
+            setStackPointer(invocationStackPointer);
+            setProgramCounter(returnAddress);
             if (returnVariable != RoutineContext.DISCARD_RESULT) {
 
                 setVariable(returnVariable, returnValue);
             }
         } else {
-            throw new IllegalStateException("no routine context active");
+            throw new StoryException("no routine context active");
         }
     }
 
@@ -381,116 +542,184 @@ public class CpuImpl implements Cpu, Interruptable {
      * {@inheritDoc}
      */
     public RoutineContext getCurrentRoutineContext() {
-        if (routineContextStack.size() == 0) {
+        if (frames.size() == 0) {
             return null;
         }
-        return routineContextStack.get(routineContextStack.size() - 1);
+        return createRoutineContext(frames.size() - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int getCurrentNumArguments() {
+        return frames.getNumArguments(frames.size() - 1);
     }
 
     /**
      * {@inheritDoc}
      */
     public List<RoutineContext> getRoutineContexts() {
-        return Collections.unmodifiableList(routineContextStack);
+        final List<RoutineContext> contexts
+                = new ArrayList<RoutineContext>(frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+
+            contexts.add(createRoutineContext(i));
+        }
+        return Collections.unmodifiableList(contexts);
     }
 
     /**
      * {@inheritDoc}
      */
     public void setRoutineContexts(final List<RoutineContext> contexts) {
-        routineContextStack.clear();
+        frames.clear();
         for (RoutineContext context : contexts) {
 
-            routineContextStack.add(context);
+            pushFrame(context);
+        }
+        if (profiler != null) {
+            profiler.stackReplaced(contexts.size());
         }
     }
 
     /**
-     * This function is basically exposed to the debug application.
-     *
-     * @return the current routine stack pointer
+     * {@inheritDoc}
      */
     public int getRoutineStackPointer() {
-        return routineContextStack.size();
+        return frames.size();
     }
 
-    public RoutineContext call(final int packedRoutineAddress,
-            final int returnAddress, final short[] args, final short returnVariable) {
+    /**
+     * {@inheritDoc}
+     */
+    public void call(final int packedRoutineAddress, final int returnAddress,
+            final short[] args, final int numArgs, final short returnVariable) {
 
         final int routineAddress
-                = translatePackedAddress(packedRoutineAddress, true);
-        final int numArgs = args == null ? 0 : args.length;
-        final RoutineContext routineContext = decodeRoutine(routineAddress);
-
-        // Sets the number of arguments
-        routineContext.setNumArguments(numArgs);
-
-        // Save return parameters
-        routineContext.setReturnAddress(returnAddress);
-
-        // Only if this instruction stores a result
-        if (returnVariable == RoutineContext.DISCARD_RESULT) {
-
-            routineContext.setReturnVariable(RoutineContext.DISCARD_RESULT);
-
-        } else {
+                = profile.unpackRoutineAddress(packedRoutineAddress);
+        final RoutineHeader header = getRoutineHeader(routineAddress);
+        final int numLocals = header.numLocals;
+
+        // Pushes the frame, saving the return parameters and the
+        // invocation stack pointer
+        frames.push(header.startAddress, returnAddress, returnVariable,
+                numArgs, numLocals, getStackPointer());
+        if (profiler != null) {
+            profiler.enter(routineAddress);
+        }
+        if (header.defaultValues != null) {
 
-            routineContext.setReturnVariable(returnVariable);
+            frames.setLocalVariables(header.defaultValues);
         }
 
-    // Set call parameters into the local variables
+        // Set call parameters into the local variables
         // if there are more parameters than local variables,
         // those are thrown away
-        final int numToCopy = Math.min(routineContext.getNumLocalVariables(),
-                numArgs);
-
+        final int numToCopy = Math.min(numLocals, numArgs);
         for (int i = 0; i < numToCopy; i++) {
 
-            routineContext.setLocalVariable(i, args[i]);
+            frames.setLocalVariable(i, args[i]);
         }
 
-        // save invocation stack pointer
-        routineContext.setInvocationStackPointer(getStackPointer());
-
-        // Pushes the routine context onto the routine stack
-        pushRoutineContext(routineContext);
-
         // Jump to the address
-        setProgramCounter(routineContext.getStartAddress());
-        return routineContext;
+        setProgramCounter(header.startAddress);
     }
 
   // ************************************************************************
     // ****** Private functions
     // ************************************************
     /**
-     * Decodes the routine at the specified address.
+     * Returns the header of the routine at the specified address. Routine
+     * headers outside of dynamic memory are decoded only once, unless the
+     * story may write to static and high memory.
      *
-     * @param routineAddress the routine address
-     * @return a RoutineContext object
+     * @param routineAddress the unpacked routine address
+     * @return the routine header
      */
-    private RoutineContext decodeRoutine(final int routineAddress) {
-        final GameData gamedata = machine.getGameData();
-        final Memory memory = gamedata.getMemory();
-        final int numLocals = memory.readUnsignedByte(routineAddress);
-        final short[] locals = new short[numLocals];
+    private RoutineHeader getRoutineHeader(final int routineAddress) {
+        if (routineAddress < routineCacheStart) {
+
+            // the game could modify routines in writable memory
+            return decodeRoutineHeader(routineAddress);
+        }
+        RoutineHeader[] page = routineCache[routineAddress >>> ROUTINE_PAGE_BITS];
+        if (page == null) {
+            page = new RoutineHeader[ROUTINE_PAGE_SIZE];
+            routineCache[routineAddress >>> ROUTINE_PAGE_BITS] = page;
+        }
+        final int slot = routineAddress & (ROUTINE_PAGE_SIZE - 1);
+        RoutineHeader header = page[slot];
+        if (header == null) {
+            header = decodeRoutineHeader(routineAddress);
+            page[slot] = header;
+        }
+        return header;
+    }
+
+    /**
+     * Decodes the header of the routine at the specified address. A header
+     * byte above 15 is clamped, since a routine can not address more local
+     * variables, but the code still starts after all of its default values.
+     *
+     * @param routineAddress the unpacked routine address
+     * @return the routine header
+     */
+    private RoutineHeader decodeRoutineHeader(final int routineAddress) {
+        final Memory memory = machine.getGameData().getMemory();
+        final int declaredLocals = memory.readUnsignedByte(routineAddress);
+        final int numLocals = Math.min(declaredLocals, MAX_LOCALS);
+        short[] defaultValues = null;
         int currentAddress = routineAddress + 1;
 
-        if (gamedata.getStoryFileHeader().getVersion() <= 4) {
-      // Only story files <= 4 actually store default values here,
-            // after V5 they are assumed as being 0 (standard document 1.0, S.5.2.1) 
+        if (profile.hasLocalDefaults()) {
+            // Only story files <= 4 actually store default values here,
+            // after V5 they are assumed as being 0 (standard document 1.0, S.5.2.1)
+            defaultValues = new short[numLocals];
             for (int i = 0; i < numLocals; i++) {
-                locals[i] = memory.readShort(currentAddress);
+                defaultValues[i] = memory.readShort(currentAddress);
                 currentAddress += 2;
             }
+            currentAddress += (declaredLocals - numLocals) * 2;
+        }
+        return new RoutineHeader(numLocals, defaultValues, currentAddress);
+    }
+
+    /**
+     * Pushes a frame with the contents of the specified routine context.
+     *
+     * @param context the routine context
+     */
+    private void pushFrame(final RoutineContext context) {
+        frames.push(context.getStartAddress(), context.getReturnAddress(),
+                context.getReturnVariable(), context.getNumArguments(),
+                context.getNumLocalVariables(),
+                context.getInvocationStackPointer());
+        for (int i = 0; i < context.getNumLocalVariables(); i++) {
+
+            frames.setLocalVariable(i, context.getLocalVariable(i));
         }
-        final RoutineContext info = new RoutineContext(currentAddress, numLocals);
+    }
 
+    /**
+     * Creates a RoutineContext as a copy of the specified frame.
+     *
+     * @param frame the frame index, 0 is the bottom frame
+     * @return the RoutineContext object
+     */
+    private RoutineContext createRoutineContext(final int frame) {
+        final int numLocals = frames.getNumLocalVariables(frame);
+        final RoutineContext context
+                = new RoutineContext(frames.getStartAddress(frame), numLocals);
+        context.setReturnAddress(frames.getReturnAddress(frame));
+        context.setReturnVariable(frames.getReturnVariable(frame));
+        context.setNumArguments(frames.getNumArguments(frame));
+        context.setInvocationStackPointer(
+                frames.getInvocationStackPointer(frame));
         for (int i = 0; i < numLocals; i++) {
 
-            info.setLocalVariable(i, locals[i]);
+            context.setLocalVariable(i, frames.getLocalVariable(frame, i));
         }
-        return info;
+        return context;
     }
 
     /**
@@ -524,18 +753,46 @@ public class CpuImpl implements Cpu, Interruptable {
      */
     private void checkLocalVariableAccess(final int localVariableNumber) {
 
-        if (routineContextStack.size() == 0) {
+        if (frames.size() == 0) {
 
-            throw new IllegalStateException("no routine context set");
+            throw new StoryException("no routine context set");
         }
 
-        if (localVariableNumber >= getCurrentRoutineContext().getNumLocalVariables()) {
+        if (localVariableNumber >= frames.getNumLocalVariables()) {
 
-            throw new IllegalStateException("access to non-existent local variable: "
+            throw new StoryException("access to non-existent local variable: "
                     + localVariableNumber);
         }
     }
 
+    /**
+     * The decoded header of a routine.
+     */
+    private static final class RoutineHeader {
+
+        /**
+         * The number of local variables.
+         */
+        final int numLocals;
+
+        /**
+         * The default values of the local variables, null in V5+.
+         */
+        final short[] defaultValues;
+
+        /**
+         * The address of the routine's first instruction.
+         */
+        final int startAddress;
+
+        RoutineHeader(final int numLocals, final short[] defaultValues,
+                final int startAddress) {
+            this.numLocals = numLocals;
+            this.defaultValues = defaultValues;
+            this.startAddress = startAddress;
+        }
+    }
+
   // ************************************************************************
     // ****** Interrupt functions
     // *************************************
@@ -564,10 +821,9 @@ public class CpuImpl implements Cpu, Interruptable {
 
         interruptDidOutput = false;
         executeInterrupt = true;
-        final int originalRoutineStackSize = getRoutineContexts().size();
-        final RoutineContext routineContext = call(routineAddress,
-                machine.getCpu().getProgramCounter(),
-                new short[0], (short) RoutineContext.DISCARD_RESULT);
+        final int originalRoutineStackSize = frames.size();
+        call(routineAddress, machine.getCpu().getProgramCounter(), null, 0,
+                (short) RoutineContext.DISCARD_RESULT);
 
         for (;;) {
 
@@ -577,13 +833,13 @@ public class CpuImpl implements Cpu, Interruptable {
             if (instr.isOutput()) {
                 interruptDidOutput = true;
             }
-            if (getRoutineContexts().size() == originalRoutineStackSize) {
+            if (frames.size() == originalRoutineStackSize) {
 
                 break;
             }
         }
         executeInterrupt = false;
-        return routineContext.getReturnValue();
+        return lastReturnValue;
     }
 
     public void setInterruptRoutine(final int routineAddress) {
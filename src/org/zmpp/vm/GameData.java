@@ -96,6 +96,20 @@ public interface GameData {
      */
     AlphabetTable getAlphabetTable();
 
+    /**
+     * Returns the version dependent constants of the story.
+     *
+     * @return the story profile
+     */
+    StoryProfile getStoryProfile();
+
+    /**
+     * Returns the unmodified story file the game was loaded from.
+     *
+     * @return the story image
+     */
+    StoryImage getStoryImage();
+
     /**
      * Returns the multimedia resources.
      *
@@ -20,7 +20,6 @@
  */
 package org.zmpp.vm;
 
-import org.zmpp.base.DefaultMemory;
 import org.zmpp.base.Memory;
 import org.zmpp.encoding.AccentTable;
 import org.zmpp.encoding.AlphabetTable;
@@ -36,7 +35,6 @@ import org.zmpp.encoding.ZCharDecoder;
 import org.zmpp.encoding.ZCharEncoder;
 import org.zmpp.encoding.ZCharTranslator;
 import org.zmpp.encoding.ZsciiEncoding;
-import org.zmpp.encoding.ZsciiString;
 import org.zmpp.media.Resources;
 
 /**
@@ -48,6 +46,7 @@ import org.zmpp.media.Resources;
 public class GameDataImpl implements GameData {
 
     private StoryFileHeader fileheader;
+    private StoryProfile profile;
     private Memory memory;
     private Dictionary dictionary;
     private ObjectTree objectTree;
@@ -56,8 +55,7 @@ public class GameDataImpl implements GameData {
     private ZCharEncoder encoder;
     private AlphabetTable alphabetTable;
     private Resources resources;
-    private byte[] storyfileData;
-    private int checksum;
+    private StoryImage storyImage;
 
     /**
      * Constructor.
@@ -66,7 +64,17 @@ public class GameDataImpl implements GameData {
      * @param resources the media resources
      */
     public GameDataImpl(byte[] storyfile, Resources resources) {
-        storyfileData = storyfile;
+        this(new StoryImage(storyfile), resources);
+    }
+
+    /**
+     * Constructor for a story image that can be shared with other machines.
+     *
+     * @param storyImage the story image
+     * @param resources the media resources
+     */
+    public GameDataImpl(StoryImage storyImage, Resources resources) {
+        this.storyImage = storyImage;
         this.resources = resources;
         reset();
     }
@@ -75,13 +83,10 @@ public class GameDataImpl implements GameData {
      * {@inheritDoc}
      */
     public final void reset() {
-        // Make a copy and initialize from the copy
-        final byte[] data = new byte[storyfileData.length];
-        System.arraycopy(storyfileData, 0, data, 0, storyfileData.length);
-
-        memory = new DefaultMemory(data);
+        // Only the dynamic memory is copied, static memory is shared
+        memory = storyImage.createMemory();
         fileheader = new DefaultStoryFileHeader(memory);
-        checksum = calculateChecksum();
+        profile = new StoryProfile(fileheader);
 
         // Install the whole character code system here
         initEncodingSystem();
@@ -96,29 +101,12 @@ public class GameDataImpl implements GameData {
         }
         final DictionarySizes sizes = (fileheader.getVersion() <= 3)
                 ? new DictionarySizesV1ToV3() : new DictionarySizesV4ToV8();
-        dictionary = new DefaultDictionary(memory,
-                fileheader.getDictionaryAddress(), decoder, sizes);
+        dictionary = storyImage.getDictionary(memory, decoder, sizes);
     }
 
     private void initEncodingSystem() {
-        final AccentTable accentTable = (fileheader.getCustomAccentTable() == 0)
-                ? new DefaultAccentTable()
-                : new CustomAccentTable(memory, fileheader.getCustomAccentTable());
-        encoding = new ZsciiEncoding(accentTable);
-
-        // Configure the alphabet table
-        if (fileheader.getCustomAlphabetTable() == 0) {
-            if (fileheader.getVersion() == 1) {
-                alphabetTable = new AlphabetTableV1();
-            } else if (fileheader.getVersion() == 2) {
-                alphabetTable = new AlphabetTableV2();
-            } else {
-                alphabetTable = new DefaultAlphabetTable();
-            }
-        } else {
-            alphabetTable = new CustomAlphabetTable(memory,
-                    fileheader.getCustomAlphabetTable());
-        }
+        encoding = new ZsciiEncoding(createAccentTable(memory, fileheader));
+        alphabetTable = createAlphabetTable(memory, fileheader);
 
         final ZCharTranslator translator
                 = new DefaultZCharTranslator(alphabetTable);
@@ -127,7 +115,46 @@ public class GameDataImpl implements GameData {
                 fileheader.getAbbreviationsAddress());
         decoder = new DefaultZCharDecoder(encoding, translator, abbreviations);
         encoder = new ZCharEncoder(translator);
-        ZsciiString.initialize(encoding);
+    }
+
+    /**
+     * Creates a Z char decoder that reads its tables from the specified
+     * memory. The story image uses it for the shared dictionary, which must
+     * not refer to the memory of a machine.
+     *
+     * @param memory the memory
+     * @param fileheader the story file header
+     * @return the decoder
+     */
+    static ZCharDecoder createZCharDecoder(final Memory memory,
+            final StoryFileHeader fileheader) {
+        final ZCharTranslator translator = new DefaultZCharTranslator(
+                createAlphabetTable(memory, fileheader));
+        return new DefaultZCharDecoder(
+                new ZsciiEncoding(createAccentTable(memory, fileheader)),
+                translator, new Abbreviations(memory,
+                        fileheader.getAbbreviationsAddress()));
+    }
+
+    private static AccentTable createAccentTable(final Memory memory,
+            final StoryFileHeader fileheader) {
+        return (fileheader.getCustomAccentTable() == 0)
+                ? new DefaultAccentTable()
+                : new CustomAccentTable(memory, fileheader.getCustomAccentTable());
+    }
+
+    private static AlphabetTable createAlphabetTable(final Memory memory,
+            final StoryFileHeader fileheader) {
+        if (fileheader.getCustomAlphabetTable() == 0) {
+            if (fileheader.getVersion() == 1) {
+                return new AlphabetTableV1();
+            } else if (fileheader.getVersion() == 2) {
+                return new AlphabetTableV2();
+            }
+            return new DefaultAlphabetTable();
+        }
+        return new CustomAlphabetTable(memory,
+                fileheader.getCustomAlphabetTable());
     }
 
     /**
@@ -144,6 +171,13 @@ public class GameDataImpl implements GameData {
         return fileheader;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public StoryProfile getStoryProfile() {
+        return profile;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -189,33 +223,25 @@ public class GameDataImpl implements GameData {
     /**
      * {@inheritDoc}
      */
-    public Resources getResources() {
-        return resources;
+    public StoryImage getStoryImage() {
+        return storyImage;
     }
 
     /**
-     * Calculates the checksum of the file.
-     *
-     * @param fileheader the file header
-     * @return the check sum
-     */
-    private int calculateChecksum() {
-        final int filelen = fileheader.getFileLength();
-        int sum = 0;
-        for (int i = 0x40; i < filelen; i++) {
-            sum += getMemory().readUnsignedByte(i);
-        }
-        return (sum & 0xffff);
+     * {@inheritDoc}
+     */
+    public Resources getResources() {
+        return resources;
     }
 
     public int getCalculatedChecksum() {
-        return checksum;
+        return storyImage.getChecksum();
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean hasValidChecksum() {
-        return getStoryFileHeader().getChecksum() == checksum;
+        return getStoryFileHeader().getChecksum() == storyImage.getChecksum();
     }
 }
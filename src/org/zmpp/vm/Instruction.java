@@ -28,6 +28,21 @@ package org.zmpp.vm;
  */
 public interface Instruction {
 
+    /**
+     * The instruction does not read input.
+     */
+    int INPUT_NONE = 0;
+
+    /**
+     * The instruction reads a line of input (read/sread).
+     */
+    int INPUT_LINE = 1;
+
+    /**
+     * The instruction reads a single character (read_char).
+     */
+    int INPUT_CHAR = 2;
+
     /**
      * Execute the instruction.
      */
@@ -39,4 +54,12 @@ public interface Instruction {
      * @return true if prints output, false otherwise
      */
     boolean isOutput();
+
+    /**
+     * Returns the kind of input this instruction reads from the current input
+     * stream.
+     *
+     * @return INPUT_NONE, INPUT_LINE or INPUT_CHAR
+     */
+    int getInputType();
 }
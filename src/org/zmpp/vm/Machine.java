@@ -20,6 +20,7 @@
  */
 package org.zmpp.vm;
 
+import org.zmpp.base.WriteJournal;
 import org.zmpp.media.PictureManager;
 import org.zmpp.media.SoundSystem;
 
@@ -231,4 +232,27 @@ public interface Machine extends ObjectTree {
      * @return the portable game state
      */
     PortableGameState restore_undo();
+
+    /**
+     * Returns the undo history, e.g. to set its limits.
+     *
+     * @return the undo history
+     */
+    UndoHistory getUndoHistory();
+
+    /**
+     * Returns the journal that records the writes to dynamic memory.
+     *
+     * @return the journal or null if writes are not recorded
+     */
+    WriteJournal getWriteJournal();
+
+    /**
+     * Sets the journal that records the writes to dynamic memory. A new turn
+     * is started whenever the story reads input. Since a restart or restore
+     * replaces the whole memory, it clears the journal.
+     *
+     * @param journal the journal or null to stop recording
+     */
+    void setWriteJournal(WriteJournal journal);
 }
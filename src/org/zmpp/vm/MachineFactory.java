@@ -29,7 +29,9 @@ import org.zmpp.blorb.BlorbResources;
 import org.zmpp.blorb.BlorbStory;
 import org.zmpp.iff.DefaultFormChunk;
 import org.zmpp.iff.FormChunk;
+import org.zmpp.instructions.BlockCompiler;
 import org.zmpp.instructions.DefaultInstructionDecoder;
+import org.zmpp.instructions.OpcodeProfiler;
 import org.zmpp.io.FileInputStream;
 import org.zmpp.io.IOSystem;
 import org.zmpp.io.InputStream;
@@ -52,7 +54,10 @@ public abstract class MachineFactory<T> {
     private byte[] storydata, blorbdata;
     private File storyfile, blorbfile;
     private URL storyurl, blorburl;
+    private StoryImage storyimage;
     private FormChunk blorbchunk;
+    private OpcodeProfiler profiler;
+    private RoutineProfiler routineProfiler;
 
     public MachineFactory(File storyfile, File blorbfile) {
         this.storyfile = storyfile;
@@ -78,20 +83,53 @@ public abstract class MachineFactory<T> {
     }
 
     /**
-     * This is the main creation function.
+     * Constructor for a machine that shares its story image with other
+     * machines.
+     *
+     * @param storyimage the story image
+     * @param blorbdata the Blorb resources or null
+     */
+    public MachineFactory(StoryImage storyimage, byte[] blorbdata) {
+        this.storyimage = storyimage;
+        this.blorbdata = blorbdata;
+    }
+
+    /**
+     * This is the main creation function. The system properties
+     * "zmpp.undo.depth" and "zmpp.undo.budget" limit the number of undo
+     * states and their size in bytes. If "zmpp.staticwritable" is set to
+     * true, the story may write to static and high memory, which is a fault
+     * otherwise; a shared story image keeps its own setting.
      *
      * @return the machine
      */
     public Machine buildMachine() throws IOException {
 
-        final GameData gamedata = new GameDataImpl(readStoryData(), readResources());
+        if (storyimage == null) {
+            storyimage = new StoryImage(readStoryData());
+            storyimage.setStaticWritable(
+                    Boolean.getBoolean("zmpp.staticwritable"));
+        }
+        final GameData gamedata = new GameDataImpl(storyimage, readResources());
 
         if (isInvalidStory(gamedata.getStoryFileHeader().getVersion())) {
             reportInvalidStory();
         }
         final Machine machine = new MachineImpl();
-        final InstructionDecoder decoder = new DefaultInstructionDecoder();
+        final InstructionDecoder decoder = createInstructionDecoder();
         machine.initialize(gamedata, decoder);
+        if (System.getProperty("zmpp.routineprofile") != null) {
+            routineProfiler = new RoutineProfiler();
+            machine.getCpu().setRoutineProfiler(routineProfiler);
+        }
+        final Integer undoDepth = Integer.getInteger("zmpp.undo.depth");
+        if (undoDepth != null) {
+            machine.getUndoHistory().setMaxStates(undoDepth);
+        }
+        final Long undoBudget = Long.getLong("zmpp.undo.budget");
+        if (undoBudget != null) {
+            machine.getUndoHistory().setMaxBytes(undoBudget);
+        }
         initUI(machine);
         initIOSystem(machine);
         return machine;
@@ -100,6 +138,86 @@ public abstract class MachineFactory<T> {
     // ***********************************************************************
     // ****** Protected methods to be overridden
     // ***************************************************
+    /**
+     * Creates the instruction decoder. The system property "zmpp.fusion"
+     * selects the superinstructions: "false" disables them, a comma
+     * separated list of pairs like "LOAD JE,GET_PROP JZ" replaces the
+     * default pairs. If "zmpp.blockcompiler" is set to true, the decoder is
+     * wrapped in a BlockCompiler, which executes straight-line code as basic
+     * blocks. Step budgets count dispatches, so a superinstruction or a
+     * basic block is a single step.
+     * If one of the system properties "zmpp.profile" or "zmpp.routineprofile"
+     * is set, every instruction is dispatched on its own, so the profiles
+     * count the story's instructions, and the opcodes are executed through
+     * an OpcodeProfiler if "zmpp.profile" is set.
+     *
+     * @return the instruction decoder
+     */
+    protected InstructionDecoder createInstructionDecoder() {
+        final DefaultInstructionDecoder decoder = new DefaultInstructionDecoder();
+        final String fusion = System.getProperty("zmpp.fusion");
+        if (fusion != null) {
+            setFusionPairs(decoder, fusion);
+        }
+        if (System.getProperty("zmpp.profile") != null
+                || System.getProperty("zmpp.routineprofile") != null) {
+            decoder.clearFusionPairs();
+            if (System.getProperty("zmpp.profile") != null) {
+                profiler = new OpcodeProfiler(decoder);
+                return profiler;
+            }
+            return decoder;
+        }
+        if (Boolean.getBoolean("zmpp.blockcompiler")) {
+            return new BlockCompiler(decoder);
+        }
+        return decoder;
+    }
+
+    /**
+     * Replaces the fusion pairs of the decoder with the specified ones.
+     *
+     * @param decoder the decoder
+     * @param fusion "true" for the default pairs, "false" for none or a
+     * comma separated list of pairs
+     */
+    private static void setFusionPairs(final DefaultInstructionDecoder decoder,
+            final String fusion) {
+        if ("true".equalsIgnoreCase(fusion)) {
+            return;
+        }
+        decoder.clearFusionPairs();
+        if ("false".equalsIgnoreCase(fusion)) {
+            return;
+        }
+        for (String pair : fusion.split(",")) {
+            final String[] names = pair.trim().toUpperCase().split("\\s+");
+            if (names.length != 2) {
+                throw new IllegalArgumentException("invalid fusion pair: "
+                        + pair);
+            }
+            decoder.addFusionPair(names[0], names[1]);
+        }
+    }
+
+    /**
+     * Returns the opcode profiler of the machine.
+     *
+     * @return the opcode profiler or null if profiling is not enabled
+     */
+    public OpcodeProfiler getOpcodeProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Returns the routine profiler of the machine.
+     *
+     * @return the routine profiler or null if profiling is not enabled
+     */
+    public RoutineProfiler getRoutineProfiler() {
+        return routineProfiler;
+    }
+
     /**
      * Initializes the user interface objects.
      *
@@ -115,6 +233,16 @@ public abstract class MachineFactory<T> {
      */
     abstract public T getUI();
 
+    /**
+     * Returns the story image, which can be passed to further factories for
+     * the same story. It is available after the first machine was built.
+     *
+     * @return the story image
+     */
+    public StoryImage getStoryImage() {
+        return storyimage;
+    }
+
     /**
      * Reads the story data.
      *
@@ -190,13 +318,11 @@ public abstract class MachineFactory<T> {
     }
 
     private FormChunk readBlorbFromFile() throws IOException {
-        if (blorbchunk == null) {
-            byte[] data = FileUtils.readFileBytes(blorbfile);
-            if (data != null) {
-                blorbchunk = new DefaultFormChunk(new DefaultMemory(data));
-                if (!"IFRS".equals(new String(blorbchunk.getSubId()))) {
-                    throw new IOException("not a valid Blorb file");
-                }
+        if (blorbchunk == null && blorbfile.isFile()) {
+            // mapped, so the media are not copied onto the heap
+            blorbchunk = new DefaultFormChunk(FileUtils.mapFile(blorbfile));
+            if (!"IFRS".equals(new String(blorbchunk.getSubId()))) {
+                throw new IOException("not a valid Blorb file");
             }
         }
         return blorbchunk;
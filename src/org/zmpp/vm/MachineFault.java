@@ -0,0 +1,97 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+/**
+ * A fault of the story that stopped the machine, e.g. an access to an
+ * invalid memory address. It names the instruction and the routine that
+ * caused it, the original exception is its cause.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class MachineFault extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int programCounter;
+    private final int routineAddress;
+    private final int callDepth;
+
+    /**
+     * Constructor.
+     *
+     * @param programCounter the address of the faulting instruction
+     * @param routineAddress the start address of the current routine or -1 if
+     * it is the main routine of a story before version 6
+     * @param callDepth the number of active routine calls
+     * @param cause the original exception
+     */
+    public MachineFault(final int programCounter, final int routineAddress,
+            final int callDepth, final Throwable cause) {
+
+        super(createMessage(programCounter, routineAddress, callDepth, cause),
+                cause);
+        this.programCounter = programCounter;
+        this.routineAddress = routineAddress;
+        this.callDepth = callDepth;
+    }
+
+    /**
+     * Returns the address of the faulting instruction.
+     *
+     * @return the program counter
+     */
+    public int getProgramCounter() {
+
+        return programCounter;
+    }
+
+    /**
+     * Returns the start address of the routine the fault occurred in.
+     *
+     * @return the routine address or -1 for the main routine
+     */
+    public int getRoutineAddress() {
+
+        return routineAddress;
+    }
+
+    /**
+     * Returns the number of active routine calls.
+     *
+     * @return the call depth
+     */
+    public int getCallDepth() {
+
+        return callDepth;
+    }
+
+    private static String createMessage(final int programCounter,
+            final int routineAddress, final int callDepth,
+            final Throwable cause) {
+
+        final String routine = (routineAddress < 0) ? "the main routine"
+                : String.format("routine $%05x", routineAddress);
+        final String reason = (cause.getMessage() != null)
+                ? cause.getMessage() : cause.toString();
+        return String.format("Fatal error at $%05x in %s, call depth %d: %s",
+                programCounter, routine, callDepth, reason);
+    }
+}
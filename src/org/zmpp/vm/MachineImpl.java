@@ -20,6 +20,9 @@
  */
 package org.zmpp.vm;
 
+import org.zmpp.base.CopyOnWriteMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.base.WriteJournal;
 import org.zmpp.blorb.BlorbImage;
 import org.zmpp.encoding.ZsciiString;
 import org.zmpp.iff.FormChunk;
@@ -33,7 +36,6 @@ import org.zmpp.media.SoundSystemImpl;
 import org.zmpp.vm.StoryFileHeader.Attribute;
 import org.zmpp.vmutil.PredictableRandomGenerator;
 import org.zmpp.vmutil.RandomGenerator;
-import org.zmpp.vmutil.RingBuffer;
 import org.zmpp.vmutil.UnpredictableRandomGenerator;
 
 /**
@@ -45,16 +47,17 @@ import org.zmpp.vmutil.UnpredictableRandomGenerator;
 public class MachineImpl implements Machine {
 
     /**
-     * Number of undo steps.
+     * The default maximum number of undo steps.
      */
-    private static final int NUM_UNDO = 5;
+    private static final int NUM_UNDO = 100;
 
     private GameData gamedata;
     private RandomGenerator random;
     private StatusLine statusLine;
     private ScreenModel screenModel;
     private SaveGameDataStore datastore;
-    private RingBuffer<PortableGameState> undostates;
+    private UndoHistory undostates;
+    private WriteJournal journal;
     private InputFunctions inputFunctions;
     private SoundSystem soundSystem;
     private PictureManager pictureManager;
@@ -73,7 +76,7 @@ public class MachineImpl implements Machine {
      * {@inheritDoc}
      */
     public int getVersion() {
-        return gamedata.getStoryFileHeader().getVersion();
+        return gamedata.getStoryProfile().getVersion();
     }
 
     /**
@@ -111,7 +114,7 @@ public class MachineImpl implements Machine {
             final InstructionDecoder decoder) {
         this.gamedata = gamedata;
         this.random = new UnpredictableRandomGenerator();
-        this.undostates = new RingBuffer<PortableGameState>(NUM_UNDO);
+        this.undostates = new UndoHistory(NUM_UNDO, Long.MAX_VALUE);
 
         cpu = new CpuImpl(this, decoder);
         output = new OutputImpl(gamedata, cpu);
@@ -162,6 +165,7 @@ public class MachineImpl implements Machine {
      */
     public void restart() {
         restart(true);
+        resetWriteJournal();
     }
 
     /**
@@ -171,7 +175,8 @@ public class MachineImpl implements Machine {
         cpu.setRunning(false);
 
         // On quit, close the streams
-        output.print(new ZsciiString("*Game ended*"));
+        output.print(new ZsciiString("*Game ended*",
+                gamedata.getZsciiEncoding()));
         closeStreams();
         screenModel.redraw();
     }
@@ -199,6 +204,9 @@ public class MachineImpl implements Machine {
      */
     public char readLine(final int textbuffer, final int time,
             final int routineAddress) {
+        if (journal != null) {
+            journal.startTurn();
+        }
         return inputFunctions.readLine(textbuffer, time, routineAddress);
     }
 
@@ -206,6 +214,9 @@ public class MachineImpl implements Machine {
      * {@inheritDoc}
      */
     public char readChar(final int time, final int routineAddress) {
+        if (journal != null) {
+            journal.startTurn();
+        }
         return inputFunctions.readChar(time, routineAddress);
     }
 
@@ -239,7 +250,7 @@ public class MachineImpl implements Machine {
             final String objectName = gamedata.getZCharDecoder().decode2Zscii(
                     gamedata.getMemory(),
                     gamedata.getObjectTree().getPropertiesDescriptionAddress(objNum), 0)
-                    .toString();
+                    .toString(gamedata.getZsciiEncoding());
             final int global2 = cpu.getVariable(0x11);
             final int global3 = cpu.getVariable(0x12);
             if (gamedata.getStoryFileHeader().isEnabled(Attribute.SCORE_GAME)) {
@@ -295,9 +306,7 @@ public class MachineImpl implements Machine {
      * {@inheritDoc}
      */
     public boolean save_undo(final int savepc) {
-        final PortableGameState undoGameState = new PortableGameState();
-        undoGameState.captureMachineState(this, savepc);
-        undostates.add(undoGameState);
+        undostates.save(this, savepc);
         return true;
     }
 
@@ -316,6 +325,7 @@ public class MachineImpl implements Machine {
                 // current window state
                 restart(false);
                 gamestate.transferStateToMachine(this);
+                resetWriteJournal();
                 //System.out.printf("restore(), pc is: %4x running: %b\n", getProgramCounter(), isRunning());
                 return gamestate;
             }
@@ -330,16 +340,37 @@ public class MachineImpl implements Machine {
     // do not reset screen model, since e.g. AMFV simply picks up the
         // current window state
         if (undostates.size() > 0) {
-            final PortableGameState undoGameState
-                    = undostates.remove(undostates.size() - 1);
             restart(false);
-            undoGameState.transferStateToMachine(this);
+            final PortableGameState undoGameState = undostates.restore(this);
+            resetWriteJournal();
             System.out.printf("restore(), pc is: %4x\n", cpu.getProgramCounter());
             return undoGameState;
         }
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public UndoHistory getUndoHistory() {
+        return undostates;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public WriteJournal getWriteJournal() {
+        return journal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setWriteJournal(final WriteJournal journal) {
+        this.journal = journal;
+        attachWriteJournal();
+    }
+
   // ***********************************************************************
     // ***** Private methods
     // **************************************
@@ -396,6 +427,30 @@ public class MachineImpl implements Machine {
         fileHeader.setEnabled(Attribute.FORCE_FIXED_FONT, fixedFontForced);
     }
 
+    /**
+     * Clears the journal and attaches it to the memory that a restart or
+     * restore has put in place. This has to happen after the state was
+     * transferred, otherwise the journal would record the restored memory
+     * as writes of the current turn.
+     */
+    private void resetWriteJournal() {
+        if (journal != null) {
+            journal.clear();
+            attachWriteJournal();
+        }
+    }
+
+    /**
+     * Sets the journal in the current memory, which only supports it if it
+     * is a CopyOnWriteMemory.
+     */
+    private void attachWriteJournal() {
+        final Memory memory = gamedata.getMemory();
+        if (memory instanceof CopyOnWriteMemory) {
+            ((CopyOnWriteMemory) memory).setJournal(journal);
+        }
+    }
+
   // ***********************************************************************
     // ***** Object accesss
     // ************************************
@@ -145,7 +145,8 @@ public class OutputImpl implements Output {
      */
     public void printNumber(final short number) {
 
-        print(new ZsciiString(String.valueOf(number)));
+        print(new ZsciiString(String.valueOf(number),
+                gamedata.getZsciiEncoding()));
     }
 
     public void flushOutput() {
@@ -20,6 +20,7 @@
  */
 package org.zmpp.vm;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +34,11 @@ import org.zmpp.iff.WritableFormChunk;
  * This class represents the state of the Z machine in an external format, so it
  * can be exchanged using the Quetzal IFF format.
  *
+ * A state captured from a machine is exported with a compressed CMem chunk:
+ * the dynamic memory is XORed with the original story file, so unchanged
+ * bytes become 0, and the runs of 0 bytes are run length encoded. Save games
+ * with either a CMem or an UMem chunk can be read.
+ *
  * @author Wei-ju Wu
  * @version 1.0
  */
@@ -144,6 +150,12 @@ public class PortableGameState {
      */
     private byte[] delta;
 
+    /**
+     * The original story the dynamic memory was captured from, the delta is
+     * computed against it on export.
+     */
+    private StoryImage storyImage;
+
     /**
      * The list of stack frames in this game state, from oldest to latest.
      */
@@ -253,6 +265,8 @@ public class PortableGameState {
     public void setDynamicMem(final byte[] memdata) {
 
         this.dynamicMem = memdata;
+        this.delta = null;
+        this.storyImage = null;
     }
 
   // **********************************************************************
@@ -267,6 +281,9 @@ public class PortableGameState {
     public boolean readSaveGame(final FormChunk formChunk) {
 
         stackFrames.clear();
+        dynamicMem = null;
+        delta = null;
+        storyImage = null;
 
         if (formChunk != null
                 && (new String(formChunk.getSubId())).equals("IFZS")) {
@@ -409,35 +426,31 @@ public class PortableGameState {
      */
     private void readCMemChunk(final Chunk cmemChunk) {
 
-        final Memory chunkMem = cmemChunk.getMemory();
-        int offset = Chunk.CHUNK_HEADER_LENGTH;
-        final int chunksize = cmemChunk.getSize() + Chunk.CHUNK_HEADER_LENGTH;
-        final List<Byte> byteBuffer = new ArrayList<Byte>();
-
-        byte b;
-
-        while (offset < chunksize) {
-
-            b = chunkMem.readByte(offset++);
-            if (b == 0) {
-
-                final short runlength = chunkMem.readUnsignedByte(offset++);
-
-                for (int r = 0; r <= runlength; r++) { // (runlength + 1) iterations
+        final int chunksize = cmemChunk.getSize();
+        final byte[] data = new byte[chunksize];
+        cmemChunk.getMemory().readBytes(Chunk.CHUNK_HEADER_LENGTH, data, 0,
+                chunksize);
 
-                    byteBuffer.add((byte) 0);
-                }
-            } else {
+        // determine the decompressed size first
+        int size = 0;
+        for (int offset = 0; offset < chunksize; size++) {
 
-                byteBuffer.add(b);
+            if (data[offset++] == 0 && offset < chunksize) {
+                size += data[offset++] & 0xff;
             }
         }
 
-        // Copy the results to the delta array
-        delta = new byte[byteBuffer.size()];
-        for (int i = 0; i < delta.length; i++) {
+        // the zeros are already there
+        delta = new byte[size];
+        int pos = 0;
+        for (int offset = 0; offset < chunksize; pos++) {
 
-            delta[i] = byteBuffer.get(i);
+            final byte b = data[offset++];
+            if (b == 0 && offset < chunksize) {
+                pos += data[offset++] & 0xff; // (runlength + 1) zeros
+            } else {
+                delta[pos] = b;
+            }
         }
     }
 
@@ -448,14 +461,10 @@ public class PortableGameState {
      */
     private void readUMemChunk(final Chunk umemChunk) {
 
-        final Memory chunkMem = umemChunk.getMemory();
         final int datasize = umemChunk.getSize();
-
         dynamicMem = new byte[datasize];
-        for (int i = 0; i < datasize; i++) {
-
-            dynamicMem[i] = chunkMem.readByte(i + Chunk.CHUNK_HEADER_LENGTH);
-        }
+        umemChunk.getMemory().readBytes(Chunk.CHUNK_HEADER_LENGTH, dynamicMem, 0,
+                datasize);
     }
 
   // **********************************************************************
@@ -470,24 +479,39 @@ public class PortableGameState {
      */
     public void captureMachineState(final Machine machine, final int savePc) {
 
-        final StoryFileHeader fileheader
-                = machine.getGameData().getStoryFileHeader();
-        release = fileheader.getRelease();
-        checksum = fileheader.getChecksum();
-        serialBytes = fileheader.getSerialNumber().getBytes();
-        pc = savePc;
+        captureProcessorState(machine, savePc);
+        storyImage = machine.getGameData().getStoryImage();
 
     // capture dynamic memory which ends at address(staticsMem) - 1
         // uncompressed
         final Memory memory = machine.getGameData().getMemory();
-        final int staticMemStart = fileheader.getStaticsAddress();
+        final int staticMemStart
+                = machine.getGameData().getStoryFileHeader().getStaticsAddress();
         dynamicMem = new byte[staticMemStart];
+        memory.readBytes(0, dynamicMem, 0, staticMemStart);
+    }
 
-        for (int i = 0; i < staticMemStart; i++) {
-
-            dynamicMem[i] = memory.readByte(i);
-        }
+    /**
+     * Makes a snapshot of the current machine state without the dynamic
+     * memory, i.e. the story identification, the program counter and the
+     * stack frames. Transferring such a state to a machine leaves its memory
+     * untouched.
+     *
+     * @param machine a Machine
+     * @param savePc the program counter restore value
+     */
+    public void captureProcessorState(final Machine machine, final int savePc) {
 
+        final StoryFileHeader fileheader
+                = machine.getGameData().getStoryFileHeader();
+        release = fileheader.getRelease();
+        checksum = fileheader.getChecksum();
+        serialBytes = fileheader.getSerialNumber().getBytes();
+        pc = savePc;
+        dynamicMem = null;
+        delta = null;
+        storyImage = null;
+        stackFrames.clear();
         captureStackFrames(machine);
     }
 
@@ -592,7 +616,8 @@ public class PortableGameState {
         final byte[] id = "IFZS".getBytes();
         final WritableFormChunk formChunk = new WritableFormChunk(id);
         formChunk.addChunk(createIfhdChunk());
-        formChunk.addChunk(createUMemChunk());
+        formChunk.addChunk((storyImage != null || delta != null)
+                ? createCMemChunk() : createUMemChunk());
         formChunk.addChunk(createStksChunk());
 
         return formChunk;
@@ -621,6 +646,60 @@ public class PortableGameState {
         return chunk;
     }
 
+    /**
+     * Creates the CMem chunk. Every run of 0 bytes in the delta is encoded as
+     * a 0 byte followed by the run length - 1, which must fit into a byte.
+     * Unchanged bytes at the end of dynamic memory are omitted.
+     *
+     * @return the CMem chunk
+     */
+    private Chunk createCMemChunk() {
+
+        final byte[] id = "CMem".getBytes();
+        final byte[] changes = getDelta();
+        int length = changes.length;
+        while (length > 0 && changes[length - 1] == 0) {
+            length--;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < length) {
+
+            final byte b = changes[i++];
+            out.write(b);
+            if (b == 0) {
+
+                int runlength = 0;
+                while (i < length && changes[i] == 0 && runlength < 255) {
+                    runlength++;
+                    i++;
+                }
+                out.write(runlength);
+            }
+        }
+        return new DefaultChunk(id, out.toByteArray());
+    }
+
+    /**
+     * Returns the delta of the dynamic memory, computing it from the captured
+     * memory if necessary.
+     *
+     * @return the delta
+     */
+    private byte[] getDelta() {
+
+        if (delta == null) {
+
+            delta = new byte[dynamicMem.length];
+            storyImage.readBytes(0, delta, 0, delta.length);
+            for (int i = 0; i < delta.length; i++) {
+
+                delta[i] ^= dynamicMem[i];
+            }
+        }
+        return delta;
+    }
+
     private Chunk createUMemChunk() {
 
         final byte[] id = "UMem".getBytes();
@@ -630,19 +709,13 @@ public class PortableGameState {
     private Chunk createStksChunk() {
 
         final byte[] id = "Stks".getBytes();
-        final List<Byte> byteBuffer = new ArrayList<Byte>();
+        final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
 
         for (StackFrame stackFrame : stackFrames) {
 
             writeStackFrameToByteBuffer(byteBuffer, stackFrame);
         }
-
-        final byte[] data = new byte[byteBuffer.size()];
-        for (int i = 0; i < data.length; i++) {
-
-            data[i] = byteBuffer.get(i);
-        }
-        return new DefaultChunk(id, data);
+        return new DefaultChunk(id, byteBuffer.toByteArray());
     }
 
     /**
@@ -651,14 +724,14 @@ public class PortableGameState {
      * @param byteBuffer a byte buffer
      * @param stackFrame the stack frame
      */
-    public void writeStackFrameToByteBuffer(final List<Byte> byteBuffer,
-            final StackFrame stackFrame) {
+    public void writeStackFrameToByteBuffer(
+            final ByteArrayOutputStream byteBuffer, final StackFrame stackFrame) {
 
         // returnpc
         final int pc = stackFrame.pc;
-        byteBuffer.add((byte) ((pc >>> 16) & 0xff));
-        byteBuffer.add((byte) ((pc >>> 8) & 0xff));
-        byteBuffer.add((byte) (pc & 0xff));
+        byteBuffer.write((pc >>> 16) & 0xff);
+        byteBuffer.write((pc >>> 8) & 0xff);
+        byteBuffer.write(pc & 0xff);
 
         // locals flag, is simply the number of local variables
         final boolean discardResult = stackFrame.returnVariable == DISCARD_RESULT;
@@ -667,13 +740,13 @@ public class PortableGameState {
 
             pvFlag |= 0x10;
         }
-        byteBuffer.add(pvFlag);
+        byteBuffer.write(pvFlag);
 
         // returnvar
-        byteBuffer.add((byte) (discardResult ? 0 : stackFrame.returnVariable));
+        byteBuffer.write(discardResult ? 0 : stackFrame.returnVariable);
 
         // argspec
-        byteBuffer.add(createArgSpecByte(stackFrame.args));
+        byteBuffer.write(createArgSpecByte(stackFrame.args));
 
         // eval stack size
         final int stacksize = stackFrame.evalStack.length;
@@ -692,18 +765,18 @@ public class PortableGameState {
         }
     }
 
-    private void addUnsignedShortToByteBuffer(final List<Byte> buffer,
-            final int value) {
+    private void addUnsignedShortToByteBuffer(
+            final ByteArrayOutputStream buffer, final int value) {
 
-        buffer.add((byte) ((value & 0xff00) >> 8));
-        buffer.add((byte) (value & 0xff));
+        buffer.write((value & 0xff00) >> 8);
+        buffer.write(value & 0xff);
     }
 
-    private void addShortToByteBuffer(final List<Byte> buffer,
+    private void addShortToByteBuffer(final ByteArrayOutputStream buffer,
             final short value) {
 
-        buffer.add((byte) ((value & 0xff00) >>> 8));
-        buffer.add((byte) (value & 0xff));
+        buffer.write((value & 0xff00) >>> 8);
+        buffer.write(value & 0xff);
     }
 
     private byte createArgSpecByte(final int[] args) {
@@ -729,9 +802,24 @@ public class PortableGameState {
         final Memory memory = machine.getGameData().getMemory();
 
         // Dynamic memory
-        for (int i = 0; i < dynamicMem.length; i++) {
+        if (dynamicMem != null) {
 
-            memory.writeByte(i, dynamicMem[i]);
+            memory.writeBytes(0, dynamicMem, 0, dynamicMem.length);
+
+        } else if (delta != null) {
+
+            // the delta is relative to the original story, bytes beyond the
+            // delta are unchanged
+            final StoryImage original = machine.getGameData().getStoryImage();
+            final int dynamicSize
+                    = machine.getGameData().getStoryFileHeader().getStaticsAddress();
+            final byte[] data = new byte[dynamicSize];
+            original.readBytes(0, data, 0, dynamicSize);
+            for (int i = 0, n = Math.min(delta.length, dynamicSize); i < n; i++) {
+
+                data[i] ^= delta[i];
+            }
+            memory.writeBytes(0, data, 0, dynamicSize);
         }
 
         // Stack frames
@@ -760,6 +848,8 @@ public class PortableGameState {
             context.setReturnVariable(stackFrame.returnVariable);
             context.setReturnAddress(stackFrame.pc);
             context.setNumArguments(stackFrame.args.length);
+            context.setInvocationStackPointer(
+                    machine.getCpu().getStackPointer());
 
             // local variables
             for (int l = 0; l < stackFrame.locals.length; l++) {
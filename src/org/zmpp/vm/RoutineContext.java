@@ -21,7 +21,9 @@
 package org.zmpp.vm;
 
 /**
- * This class holds information about a subroutine.
+ * This class holds information about a subroutine. The Cpu keeps its call
+ * frames in a CallFrameStack, RoutineContext objects are only created as
+ * copies of these frames, e.g. to save and restore the game state.
  *
  * @author Wei-ju Wu
  * @version 1.0
@@ -0,0 +1,346 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The routine profiler attributes the executed instructions to the routine
+ * on top of the routine stack. For every routine address it counts the
+ * calls, the exclusive instructions (executed in the routine itself), the
+ * inclusive instructions (executed in the routine and everything it called)
+ * and the maximum recursion depth. Additionally it keeps a call tree, which
+ * can be written as a folded stack file for flame graph tools.
+ *
+ * The Cpu reports to the profiler through enter(), exit() and
+ * countInstruction(), a Cpu without profiler does not pay for it. An
+ * instruction is counted per dispatch, so a superinstruction or a basic
+ * block counts once; MachineFactory disables both while profiling.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class RoutineProfiler {
+
+    /**
+     * The pseudo routine address for code outside of any routine.
+     */
+    public static final int TOP_LEVEL = -1;
+
+    /**
+     * The pseudo routine address for frames of a restored game.
+     */
+    public static final int RESTORED = -2;
+
+    /**
+     * The statistics of a single routine.
+     */
+    public static class RoutineStats {
+
+        private final int address;
+        private long calls;
+        private long exclusive;
+        private long inclusive;
+        private int depth;
+        private int maxDepth;
+
+        RoutineStats(final int address) {
+            this.address = address;
+        }
+
+        public int getAddress() {
+            return address;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getExclusiveInstructions() {
+            return exclusive;
+        }
+
+        public long getInclusiveInstructions() {
+            return inclusive;
+        }
+
+        public int getMaxRecursionDepth() {
+            return maxDepth;
+        }
+    }
+
+    /**
+     * A node in the call tree.
+     */
+    private static class CallNode {
+
+        final CallNode parent;
+        final RoutineStats stats;
+        final Map<Integer, CallNode> children
+                = new HashMap<Integer, CallNode>();
+        long self;
+
+        CallNode(final CallNode parent, final RoutineStats stats) {
+            this.parent = parent;
+            this.stats = stats;
+        }
+    }
+
+    private Map<Integer, RoutineStats> routines;
+    private CallNode root;
+    private CallNode current;
+    private long instructions;
+
+    /**
+     * The instruction counter at entry of each active routine.
+     */
+    private long[] entryCounts;
+    private int depth;
+
+    /**
+     * Constructor.
+     */
+    public RoutineProfiler() {
+        reset();
+    }
+
+    /**
+     * Discards all collected statistics.
+     */
+    public final void reset() {
+        routines = new HashMap<Integer, RoutineStats>();
+        root = new CallNode(null, getStats(TOP_LEVEL));
+        current = root;
+        instructions = 0;
+        entryCounts = new long[64];
+        depth = 0;
+    }
+
+    /**
+     * Counts an executed instruction for the current routine.
+     */
+    public void countInstruction() {
+        instructions++;
+        current.self++;
+        current.stats.exclusive++;
+    }
+
+    /**
+     * Notifies the profiler that a routine was called.
+     *
+     * @param routineAddress the routine address
+     */
+    public void enter(final int routineAddress) {
+        CallNode node = current.children.get(routineAddress);
+        if (node == null) {
+            node = new CallNode(current, getStats(routineAddress));
+            current.children.put(routineAddress, node);
+        }
+        final RoutineStats stats = node.stats;
+        stats.calls++;
+        stats.depth++;
+        stats.maxDepth = Math.max(stats.maxDepth, stats.depth);
+        if (depth == entryCounts.length) {
+            final long[] newCounts = new long[depth * 2];
+            System.arraycopy(entryCounts, 0, newCounts, 0, depth);
+            entryCounts = newCounts;
+        }
+        entryCounts[depth++] = instructions;
+        current = node;
+    }
+
+    /**
+     * Notifies the profiler that the current routine returned.
+     */
+    public void exit() {
+        if (depth == 0) {
+            // the routine was entered before the profiler was installed
+            return;
+        }
+        final RoutineStats stats = current.stats;
+        final long entryCount = entryCounts[--depth];
+        stats.depth--;
+        if (stats.depth == 0) {
+            // only the outermost activation counts, recursive calls are
+            // already included
+            stats.inclusive += instructions - entryCount;
+        }
+        current = current.parent;
+    }
+
+    /**
+     * Notifies the profiler that the routine stack was replaced, e.g. by
+     * restoring a game. The routines of the new frames are unknown.
+     *
+     * @param numFrames the number of frames on the new routine stack
+     */
+    public void stackReplaced(final int numFrames) {
+        while (depth > 0) {
+            exit();
+        }
+        for (int i = 0; i < numFrames; i++) {
+            enter(RESTORED);
+        }
+    }
+
+    /**
+     * Returns the statistics of all routines, ordered by exclusive
+     * instruction count, highest first.
+     *
+     * @return the routine statistics
+     */
+    public List<RoutineStats> getRoutineStats() {
+        // everything is executed within the top level
+        getStats(TOP_LEVEL).inclusive = instructions;
+        final List<RoutineStats> result
+                = new ArrayList<RoutineStats>(routines.values());
+        Collections.sort(result, new Comparator<RoutineStats>() {
+            public int compare(final RoutineStats stats1,
+                    final RoutineStats stats2) {
+                return stats1.exclusive < stats2.exclusive ? 1
+                        : (stats1.exclusive == stats2.exclusive ? 0 : -1);
+            }
+        });
+        return result;
+    }
+
+  // ***********************************************************************
+    // ****** Export
+    // ******************************************
+    /**
+     * Exports the profile to the specified file. The per routine statistics
+     * are written if the file name ends with ".csv", the folded stacks
+     * otherwise.
+     *
+     * @param file the output file
+     * @throws IOException if writing failed
+     */
+    public void exportTo(final File file) throws IOException {
+        final Writer writer = new FileWriter(file);
+        try {
+            if (file.getName().endsWith(".csv")) {
+                writeCsv(writer);
+            } else {
+                writeFoldedStacks(writer);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the per routine statistics in CSV format.
+     *
+     * @param writer the writer
+     */
+    public void writeCsv(final Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        out.println("routine,calls,inclusive,exclusive,max_depth");
+        for (RoutineStats stats : getRoutineStats()) {
+            out.println(getName(stats.address) + "," + stats.calls + ","
+                    + stats.inclusive + "," + stats.exclusive + ","
+                    + stats.maxDepth);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the call tree in the folded stack format: one line per call
+     * path, the routine names separated by semicolons, followed by the number
+     * of instructions executed in the last routine of the path.
+     *
+     * @param writer the writer
+     */
+    public void writeFoldedStacks(final Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        writeFoldedStacks(out);
+        out.flush();
+    }
+
+  // ***********************************************************************
+    // ****** Private functions
+    // ******************************************
+    /**
+     * Walks the call tree depth first. The tree is as deep as the story's
+     * recursion, so the walk keeps its own stack of the unvisited children
+     * and the path lengths instead of recursing.
+     *
+     * @param out the output
+     */
+    private void writeFoldedStacks(final PrintWriter out) {
+        final StringBuilder path = new StringBuilder(getName(TOP_LEVEL));
+        final Deque<Iterator<CallNode>> children
+                = new ArrayDeque<Iterator<CallNode>>();
+        final Deque<Integer> pathLengths = new ArrayDeque<Integer>();
+        if (root.self > 0) {
+            out.println(path + " " + root.self);
+        }
+        children.push(root.children.values().iterator());
+        pathLengths.push(path.length());
+        while (!children.isEmpty()) {
+            final Iterator<CallNode> iterator = children.peek();
+            if (!iterator.hasNext()) {
+                children.pop();
+                pathLengths.pop();
+                continue;
+            }
+            final CallNode child = iterator.next();
+            path.setLength(pathLengths.peek());
+            path.append(';').append(getName(child.stats.address));
+            if (child.self > 0) {
+                out.println(path + " " + child.self);
+            }
+            children.push(child.children.values().iterator());
+            pathLengths.push(path.length());
+        }
+    }
+
+    private RoutineStats getStats(final int routineAddress) {
+        RoutineStats stats = routines.get(routineAddress);
+        if (stats == null) {
+            stats = new RoutineStats(routineAddress);
+            routines.put(routineAddress, stats);
+        }
+        return stats;
+    }
+
+    private static String getName(final int routineAddress) {
+        switch (routineAddress) {
+            case TOP_LEVEL:
+                return "(top)";
+            case RESTORED:
+                return "(restored)";
+            default:
+                return String.format("R%05x", routineAddress);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+/**
+ * This exception is thrown if the story does something the Z-machine does
+ * not allow, e.g. it accesses a local variable its routine does not have.
+ * Cpu.run() reports it as a fault of the story, while every other runtime
+ * exception is a defect of the interpreter and is passed on.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class StoryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message the message
+     */
+    public StoryException(final String message) {
+
+        super(message);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import org.zmpp.base.CopyOnWriteMemory;
+import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.encoding.ZCharDecoder;
+
+/**
+ * The story image is the unmodified story file, which can be shared by any
+ * number of machines that run the same story, also concurrently. Each
+ * machine gets a CopyOnWriteMemory, which copies only the dynamic memory,
+ * and the data derived from static memory, the checksum and the dictionary,
+ * is computed only once per story.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class StoryImage {
+
+    private final byte[] data;
+    private final int staticsAddress;
+    private final int dictionaryAddress;
+    private final int checksum;
+    private Dictionary dictionary;
+    private boolean staticWritable;
+
+    /**
+     * Constructor. The story file data must not be modified afterwards.
+     *
+     * @param data the story file data
+     */
+    public StoryImage(final byte[] data) {
+
+        this.data = data;
+        final StoryFileHeader fileheader
+                = new DefaultStoryFileHeader(new DefaultMemory(data));
+        staticsAddress = fileheader.getStaticsAddress();
+        dictionaryAddress = fileheader.getDictionaryAddress();
+        checksum = calculateChecksum(fileheader.getFileLength());
+    }
+
+    /**
+     * Creates a new memory for a machine, which shares the static memory with
+     * all other memories of this story.
+     *
+     * @return the memory
+     */
+    public Memory createMemory() {
+
+        return new CopyOnWriteMemory(data, staticsAddress, staticWritable);
+    }
+
+    /**
+     * Allows the memories created afterwards to write to static and high
+     * memory, which is a fault otherwise. Only needed for stories that
+     * violate the standard.
+     *
+     * @param flag true to allow the writes
+     */
+    public void setStaticWritable(final boolean flag) {
+
+        staticWritable = flag;
+    }
+
+    /**
+     * Returns the size of the story file.
+     *
+     * @return the size in bytes
+     */
+    public int getSize() {
+
+        return data.length;
+    }
+
+    /**
+     * Copies a range of the unmodified story file into the specified array.
+     *
+     * @param address the start address
+     * @param dest the destination array
+     * @param offset the start offset in the destination array
+     * @param length the number of bytes
+     */
+    public void readBytes(final int address, final byte[] dest,
+            final int offset, final int length) {
+
+        System.arraycopy(data, address, dest, offset, length);
+    }
+
+    /**
+     * Returns the checksum of the story file.
+     *
+     * @return the checksum
+     */
+    public int getChecksum() {
+
+        return checksum;
+    }
+
+    /**
+     * Returns the dictionary of the story. If the dictionary lies in static
+     * memory, it is created once with a memory and a decoder of its own,
+     * which do not refer to any machine, and all machines share it.
+     * Otherwise every machine gets a dictionary of its own.
+     *
+     * @param memory the memory of the asking machine
+     * @param decoder the Z char decoder of the asking machine, only used
+     * for a dictionary of its own
+     * @param sizes the dictionary sizes
+     * @return the dictionary
+     */
+    public synchronized Dictionary getDictionary(final Memory memory,
+            final ZCharDecoder decoder, final DictionarySizes sizes) {
+
+        if (dictionaryAddress < staticsAddress) {
+            return new DefaultDictionary(memory, dictionaryAddress, decoder,
+                    sizes);
+        }
+        if (dictionary == null) {
+
+            // the asking machine might be discarded, so neither its memory
+            // nor its decoder, which reads the abbreviations from it, are used
+            final Memory imageMemory = createMemory();
+            dictionary = new DefaultDictionary(imageMemory, dictionaryAddress,
+                    GameDataImpl.createZCharDecoder(imageMemory,
+                            new DefaultStoryFileHeader(imageMemory)),
+                    sizes);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Calculates the checksum of the file.
+     *
+     * @param filelen the file length from the header
+     * @return the checksum
+     */
+    private int calculateChecksum(final int filelen) {
+
+        int sum = 0;
+        for (int i = 0x40; i < filelen && i < data.length; i++) {
+            sum += data[i] & 0xff;
+        }
+        return (sum & 0xffff);
+    }
+}
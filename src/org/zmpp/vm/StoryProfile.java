@@ -0,0 +1,165 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+/**
+ * The story profile holds the version dependent constants of a story file.
+ * They are computed once from the story file header, so the instructions do
+ * not need to read the header or switch on the version while they are
+ * executed.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class StoryProfile {
+
+    private final int version;
+    private final int packedAddressShift;
+    private final int routineOffset;
+    private final int stringOffset;
+    private final int globalsAddress;
+    private final int staticsAddress;
+    private final int numAttributes;
+
+    /**
+     * Constructor.
+     *
+     * @param fileheader the story file header
+     */
+    public StoryProfile(final StoryFileHeader fileheader) {
+
+        version = fileheader.getVersion();
+        globalsAddress = fileheader.getGlobalsAddress();
+        staticsAddress = fileheader.getStaticsAddress();
+        numAttributes = (version <= 3) ? 32 : 48;
+
+        // Version specific packed address translation
+        switch (version) {
+
+            case 1:
+            case 2:
+            case 3:
+                packedAddressShift = 1;
+                routineOffset = 0;
+                stringOffset = 0;
+                break;
+            case 4:
+            case 5:
+                packedAddressShift = 2;
+                routineOffset = 0;
+                stringOffset = 0;
+                break;
+            case 6:
+            case 7:
+                packedAddressShift = 2;
+                routineOffset = 8 * fileheader.getRoutineOffset();
+                stringOffset = 8 * fileheader.getStaticStringOffset();
+                break;
+            case 8:
+            default:
+                packedAddressShift = 3;
+                routineOffset = 0;
+                stringOffset = 0;
+                break;
+        }
+    }
+
+    /**
+     * Returns the story file version.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+
+        return version;
+    }
+
+    /**
+     * Translates a packed routine address into a byte address.
+     *
+     * @param packedAddress the packed address
+     * @return the byte address
+     */
+    public int unpackRoutineAddress(final int packedAddress) {
+
+        return (packedAddress << packedAddressShift) + routineOffset;
+    }
+
+    /**
+     * Translates a packed string address into a byte address.
+     *
+     * @param packedAddress the packed address
+     * @return the byte address
+     */
+    public int unpackStringAddress(final int packedAddress) {
+
+        return (packedAddress << packedAddressShift) + stringOffset;
+    }
+
+    /**
+     * Returns the start address of the global variables.
+     *
+     * @return the globals address
+     */
+    public int getGlobalsAddress() {
+
+        return globalsAddress;
+    }
+
+    /**
+     * Returns the start address of static memory.
+     *
+     * @return the statics address
+     */
+    public int getStaticsAddress() {
+
+        return staticsAddress;
+    }
+
+    /**
+     * Returns the number of attributes of an object.
+     *
+     * @return 32 in versions 1-3, 48 otherwise
+     */
+    public int getNumAttributes() {
+
+        return numAttributes;
+    }
+
+    /**
+     * Determines whether routine headers contain default values for the local
+     * variables (standard document 1.0, S.5.2.1).
+     *
+     * @return true in versions 1-4, false otherwise
+     */
+    public boolean hasLocalDefaults() {
+
+        return version <= 4;
+    }
+
+    /**
+     * Determines whether save and restore are branch instructions.
+     *
+     * @return true in versions 1-3, false otherwise
+     */
+    public boolean saveIsBranch() {
+
+        return version <= 3;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import java.util.Arrays;
+
+import org.zmpp.base.CopyOnWriteMemory;
+import org.zmpp.base.Memory;
+import org.zmpp.vm.PortableGameState.StackFrame;
+import org.zmpp.vmutil.RingBuffer;
+
+/**
+ * The undo history keeps the states saved by save_undo. Instead of a full
+ * copy of the dynamic memory, every state only stores the pages of dynamic
+ * memory that changed since the state before it, so a deep history costs
+ * little more than the memory the story actually changed.
+ *
+ * The history holds a copy of the dynamic memory at the latest state. A new
+ * state takes the pages that differ from that copy, a CopyOnWriteMemory tells
+ * which pages were written, for any other memory all pages are compared. The
+ * new state keeps the previous contents of these pages, so the copy can be
+ * turned back into the state before when the latest state is restored.
+ *
+ * The history is limited by a number of states and by a byte budget, the
+ * oldest states are discarded when a limit is exceeded, but the latest state
+ * is always kept. The byte size counts the memory copy, the stored pages and
+ * the stack frames with a fixed overhead per object, which is close to, but
+ * not exactly the heap space they occupy.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class UndoHistory {
+
+    private static final int PAGE_BITS = CopyOnWriteMemory.PAGE_BITS;
+    private static final int PAGE_SIZE = CopyOnWriteMemory.PAGE_SIZE;
+
+    /**
+     * The estimated fixed size of a state, a stack frame and a stored page in
+     * bytes.
+     */
+    private static final int STATE_OVERHEAD = 64;
+    private static final int FRAME_OVERHEAD = 48;
+    private static final int PAGE_OVERHEAD = 24;
+
+    /**
+     * A saved state.
+     */
+    private static class Snapshot {
+
+        /**
+         * The program counter and the stack frames.
+         */
+        final PortableGameState state;
+
+        /**
+         * The numbers of the pages that changed since the state before.
+         */
+        int[] pages;
+
+        /**
+         * The contents of these pages in the state before.
+         */
+        byte[][] previousContents;
+
+        /**
+         * The number of pages stored.
+         */
+        int numPages;
+
+        /**
+         * The estimated size in bytes.
+         */
+        long size;
+
+        Snapshot(final PortableGameState state) {
+            this.state = state;
+            size = STATE_OVERHEAD;
+            for (StackFrame frame : state.getStackFrames()) {
+                size += FRAME_OVERHEAD + 2 * (frame.getLocals().length
+                        + frame.getEvalStack().length)
+                        + 4 * frame.getArgs().length;
+            }
+        }
+
+        void addPage(final int page, final byte[] contents) {
+            if (pages == null) {
+                pages = new int[4];
+                previousContents = new byte[4][];
+            } else if (numPages == pages.length) {
+                pages = Arrays.copyOf(pages, numPages * 2);
+                previousContents = Arrays.copyOf(previousContents,
+                        numPages * 2);
+            }
+            pages[numPages] = page;
+            previousContents[numPages++] = contents;
+            size += PAGE_OVERHEAD + contents.length;
+        }
+
+        /**
+         * The state before was discarded, the previous contents are not
+         * needed anymore.
+         */
+        void discardPages() {
+            for (int i = 0; i < numPages; i++) {
+                size -= PAGE_OVERHEAD + previousContents[i].length;
+            }
+            pages = null;
+            previousContents = null;
+            numPages = 0;
+        }
+    }
+
+    private RingBuffer<Snapshot> snapshots;
+    private long maxBytes;
+
+    /**
+     * The sum of the snapshot sizes.
+     */
+    private long snapshotBytes;
+
+    /**
+     * The dynamic memory at the latest state, null if there is none.
+     */
+    private byte[] image;
+
+    /**
+     * The memory whose dirty pages refer to the image.
+     */
+    private Memory trackedMemory;
+
+    /**
+     * Constructor.
+     *
+     * @param maxStates the maximum number of states
+     * @param maxBytes the maximum size of the history in bytes
+     */
+    public UndoHistory(final int maxStates, final long maxBytes) {
+
+        snapshots = new RingBuffer<Snapshot>(Math.max(1, maxStates));
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the number of saved states.
+     *
+     * @return the number of states
+     */
+    public int size() {
+
+        return snapshots.size();
+    }
+
+    /**
+     * Returns the estimated size of the history in bytes.
+     *
+     * @return the size in bytes
+     */
+    public long getByteSize() {
+
+        return snapshotBytes + ((image == null) ? 0 : image.length);
+    }
+
+    /**
+     * Returns the maximum number of states.
+     *
+     * @return the maximum number of states
+     */
+    public int getMaxStates() {
+
+        return snapshots.getCapacity();
+    }
+
+    /**
+     * Sets the maximum number of states, the oldest states are discarded if
+     * there are more.
+     *
+     * @param maxStates the maximum number of states, at least 1
+     */
+    public void setMaxStates(final int maxStates) {
+
+        while (snapshots.size() > maxStates) {
+            removeOldest();
+        }
+        final RingBuffer<Snapshot> resized
+                = new RingBuffer<Snapshot>(Math.max(1, maxStates));
+        for (int i = 0; i < snapshots.size(); i++) {
+            resized.add(snapshots.get(i));
+        }
+        snapshots = resized;
+    }
+
+    /**
+     * Returns the byte budget.
+     *
+     * @return the maximum size in bytes
+     */
+    public long getMaxBytes() {
+
+        return maxBytes;
+    }
+
+    /**
+     * Sets the byte budget, the oldest states are discarded if the history is
+     * larger.
+     *
+     * @param maxBytes the maximum size in bytes
+     */
+    public void setMaxBytes(final long maxBytes) {
+
+        this.maxBytes = maxBytes;
+        enforceBudget();
+    }
+
+    /**
+     * Saves the state of the specified machine.
+     *
+     * @param machine the machine
+     * @param savePc the program counter restore value
+     */
+    public void save(final Machine machine, final int savePc) {
+
+        final PortableGameState state = new PortableGameState();
+        state.captureProcessorState(machine, savePc);
+        final Snapshot snapshot = new Snapshot(state);
+        final Memory memory = machine.getGameData().getMemory();
+        final int dynamicSize
+                = machine.getGameData().getStoryFileHeader().getStaticsAddress();
+
+        if (snapshots.size() == snapshots.getCapacity()) {
+            removeOldest();
+        }
+        if (image == null || image.length != dynamicSize) {
+
+            image = new byte[dynamicSize];
+            memory.readBytes(0, image, 0, dynamicSize);
+
+        } else {
+
+            // the oldest state does not need to restore the state before
+            capturePages(snapshot, memory, snapshots.size() > 0);
+        }
+        if (memory instanceof CopyOnWriteMemory) {
+            ((CopyOnWriteMemory) memory).clearDirtyPages();
+        }
+        trackedMemory = memory;
+        snapshots.add(snapshot);
+        snapshotBytes += snapshot.size;
+        enforceBudget();
+    }
+
+    /**
+     * Restores the latest state and removes it from the history. The machine
+     * needs to be in a reset state.
+     *
+     * @param machine the machine
+     * @return the restored state, null if there is none
+     */
+    public PortableGameState restore(final Machine machine) {
+
+        if (snapshots.size() == 0) {
+            return null;
+        }
+        final Snapshot snapshot = snapshots.removeLast();
+        snapshotBytes -= snapshot.size;
+        machine.getGameData().getMemory().writeBytes(0, image, 0, image.length);
+        if (snapshots.size() > 0) {
+
+            // turn the image into the state before
+            for (int i = 0; i < snapshot.numPages; i++) {
+
+                final byte[] contents = snapshot.previousContents[i];
+                System.arraycopy(contents, 0, image,
+                        snapshot.pages[i] << PAGE_BITS, contents.length);
+            }
+        } else {
+            image = null;
+        }
+        // the memory differs from the image by the restored pages
+        trackedMemory = null;
+        snapshot.state.transferStateToMachine(machine);
+        return snapshot.state;
+    }
+
+  // ***********************************************************************
+    // ****** Private functions
+    // ******************************************
+    /**
+     * Discards the oldest states while the history exceeds the byte budget,
+     * the latest state is kept.
+     */
+    private void enforceBudget() {
+
+        while (snapshots.size() > 1 && getByteSize() > maxBytes) {
+            removeOldest();
+        }
+    }
+
+    /**
+     * Discards the oldest state. The next state becomes the oldest one and
+     * does not need its previous page contents anymore.
+     */
+    private void removeOldest() {
+
+        snapshotBytes -= snapshots.removeFirst().size;
+        if (snapshots.size() > 0) {
+
+            final Snapshot oldest = snapshots.get(0);
+            snapshotBytes -= oldest.size;
+            oldest.discardPages();
+            snapshotBytes += oldest.size;
+        } else {
+
+            // the image is rebuilt by the next save
+            image = null;
+        }
+    }
+
+    /**
+     * Updates the image with the pages of the specified memory that differ
+     * from it.
+     *
+     * @param snapshot the new snapshot
+     * @param memory the memory
+     * @param keepPrevious if true, the previous page contents are stored in
+     * the snapshot
+     */
+    private void capturePages(final Snapshot snapshot, final Memory memory,
+            final boolean keepPrevious) {
+
+        final CopyOnWriteMemory tracked = (memory == trackedMemory
+                && memory instanceof CopyOnWriteMemory)
+                ? (CopyOnWriteMemory) memory : null;
+        final int numPages = (image.length + PAGE_SIZE - 1) >>> PAGE_BITS;
+        for (int page = 0; page < numPages; page++) {
+
+            if (tracked != null && !tracked.isDirty(page)) {
+                continue;
+            }
+            final int start = page << PAGE_BITS;
+            final int length = Math.min(PAGE_SIZE, image.length - start);
+            if (memory.mismatch(start, image, start, length) >= 0) {
+
+                if (keepPrevious) {
+                    snapshot.addPage(page,
+                            Arrays.copyOfRange(image, start, start + length));
+                }
+                memory.readBytes(start, image, start, length);
+            }
+        }
+    }
+}
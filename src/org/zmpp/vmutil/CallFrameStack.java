@@ -0,0 +1,222 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vmutil;
+
+import java.util.Arrays;
+
+import org.zmpp.vm.StoryException;
+
+/**
+ * This class implements the Z-machine's routine call stack. The frame data is
+ * held in primitive arrays indexed by the frame depth, so calling and
+ * returning from a routine does not create any objects. The arrays grow on
+ * demand up to a maximum depth and are kept for reuse.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class CallFrameStack {
+
+    /**
+     * The number of local variable slots reserved per frame, a routine has at
+     * most 15 local variables.
+     */
+    private static final int LOCALS_PER_FRAME = 16;
+
+    private int[] startAddresses;
+    private int[] returnAddresses;
+    private int[] returnVariables;
+    private int[] numArguments;
+    private int[] numLocals;
+    private int[] invocationStackPointers;
+    private short[] locals;
+    private int size;
+
+    /**
+     * The maximum number of frames, a deeper call is a story error.
+     */
+    private final int maxFrames;
+
+    /**
+     * The start index of the top frame's local variables.
+     */
+    private int localsBase;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the initial number of frames
+     * @param maxFrames the maximum number of frames
+     */
+    public CallFrameStack(final int capacity, final int maxFrames) {
+        this.maxFrames = maxFrames;
+        startAddresses = new int[capacity];
+        returnAddresses = new int[capacity];
+        returnVariables = new int[capacity];
+        numArguments = new int[capacity];
+        numLocals = new int[capacity];
+        invocationStackPointers = new int[capacity];
+        locals = new short[capacity * LOCALS_PER_FRAME];
+        size = 0;
+        localsBase = -LOCALS_PER_FRAME;
+    }
+
+    /**
+     * Returns the number of frames on the stack.
+     *
+     * @return the number of frames
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all frames.
+     */
+    public void clear() {
+        size = 0;
+        localsBase = -LOCALS_PER_FRAME;
+    }
+
+    /**
+     * Pushes a new frame. The local variables of the new frame are set to 0.
+     *
+     * @param startAddress the routine's start address
+     * @param returnAddress the return address
+     * @param returnVariable the return variable
+     * @param numArgs the number of arguments
+     * @param numLocalVariables the number of local variables, at most 15
+     * @param invocationStackPointer the stack pointer at invocation time
+     * @throws StoryException if the stack holds the maximum number of frames
+     */
+    public void push(final int startAddress, final int returnAddress,
+            final int returnVariable, final int numArgs,
+            final int numLocalVariables, final int invocationStackPointer) {
+        if (size == startAddresses.length) {
+            if (size == maxFrames) {
+                throw new StoryException("call depth exceeds " + maxFrames);
+            }
+            grow();
+        }
+        startAddresses[size] = startAddress;
+        returnAddresses[size] = returnAddress;
+        returnVariables[size] = returnVariable;
+        numArguments[size] = numArgs;
+        numLocals[size] = numLocalVariables;
+        invocationStackPointers[size] = invocationStackPointer;
+        localsBase = size * LOCALS_PER_FRAME;
+        Arrays.fill(locals, localsBase, localsBase + numLocalVariables,
+                (short) 0);
+        size++;
+    }
+
+    /**
+     * Removes the top frame.
+     */
+    public void pop() {
+        size--;
+        localsBase -= LOCALS_PER_FRAME;
+    }
+
+    /**
+     * Returns the number of local variables of the top frame.
+     *
+     * @return the number of local variables
+     */
+    public int getNumLocalVariables() {
+        return numLocals[size - 1];
+    }
+
+    /**
+     * Returns the local variable of the top frame.
+     *
+     * @param localNum the local variable number, starting with 0
+     * @return the value
+     */
+    public short getLocalVariable(final int localNum) {
+        return locals[localsBase + localNum];
+    }
+
+    /**
+     * Sets the local variable of the top frame.
+     *
+     * @param localNum the local variable number, starting with 0
+     * @param value the value
+     */
+    public void setLocalVariable(final int localNum, final short value) {
+        locals[localsBase + localNum] = value;
+    }
+
+    /**
+     * Copies the specified values into the local variables of the top frame,
+     * starting with the first local variable.
+     *
+     * @param values the values, at most 15
+     */
+    public void setLocalVariables(final short[] values) {
+        System.arraycopy(values, 0, locals, localsBase, values.length);
+    }
+
+  // ***********************************************************************
+    // ****** Access to arbitrary frames, 0 is the bottom frame
+    // *************************************************
+    public int getStartAddress(final int frame) {
+        return startAddresses[frame];
+    }
+
+    public int getReturnAddress(final int frame) {
+        return returnAddresses[frame];
+    }
+
+    public int getReturnVariable(final int frame) {
+        return returnVariables[frame];
+    }
+
+    public int getNumArguments(final int frame) {
+        return numArguments[frame];
+    }
+
+    public int getNumLocalVariables(final int frame) {
+        return numLocals[frame];
+    }
+
+    public int getInvocationStackPointer(final int frame) {
+        return invocationStackPointers[frame];
+    }
+
+    public short getLocalVariable(final int frame, final int localNum) {
+        return locals[frame * LOCALS_PER_FRAME + localNum];
+    }
+
+    /**
+     * Doubles the capacity of the stack, but not beyond the maximum number
+     * of frames.
+     */
+    private void grow() {
+        final int capacity = Math.min(startAddresses.length * 2, maxFrames);
+        startAddresses = Arrays.copyOf(startAddresses, capacity);
+        returnAddresses = Arrays.copyOf(returnAddresses, capacity);
+        returnVariables = Arrays.copyOf(returnVariables, capacity);
+        numArguments = Arrays.copyOf(numArguments, capacity);
+        numLocals = Arrays.copyOf(numLocals, capacity);
+        invocationStackPointers = Arrays.copyOf(invocationStackPointers,
+                capacity);
+        locals = Arrays.copyOf(locals, capacity * LOCALS_PER_FRAME);
+    }
+}
@@ -20,6 +20,8 @@
  */
 package org.zmpp.vmutil;
 
+import org.zmpp.vm.StoryException;
+
 /**
  * This class implements a faster version of the Z-machin main stack. This
  * combines abstract access with the bypassing of unnecessary object creation.
@@ -51,12 +53,26 @@ public final class FastShortStack {
         return stackpointer;
     }
 
+    /**
+     * Sets the stack pointer, the values above it are discarded.
+     *
+     * @param stackpointer the new stack pointer, must not be greater than the
+     * current stack pointer
+     */
+    public void setStackPointer(final int stackpointer) {
+        this.stackpointer = stackpointer;
+    }
+
     /**
      * Pushes a value on the stack and increases the stack pointer.
      *
      * @param value the value
+     * @throws StoryException if the stack is full
      */
     public void push(final short value) {
+        if (stackpointer == values.length) {
+            throw new StoryException("stack overflow, size " + values.length);
+        }
         values[stackpointer++] = value;
     }
 
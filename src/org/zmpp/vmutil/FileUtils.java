@@ -20,14 +20,14 @@
  */
 package org.zmpp.vmutil;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.channels.FileChannel;
 
-import org.zmpp.base.DefaultMemory;
+import org.zmpp.base.ByteBufferMemory;
 import org.zmpp.base.Memory;
 import org.zmpp.blorb.BlorbResources;
 import org.zmpp.iff.DefaultFormChunk;
@@ -50,34 +50,42 @@ public class FileUtils {
     }
 
     /**
-     * Creates a resources object from a Blorb file.
+     * Creates a resources object from a Blorb file. The file is mapped into
+     * memory, so the media are only read when they are used.
      *
      * @param blorbfile the file
      * @return the resources object or null (on failure)
      */
     public static Resources createResources(final File blorbfile) {
-        RandomAccessFile raf = null;
         try {
-            raf = new RandomAccessFile(blorbfile, "r");
-            final byte[] data = new byte[(int) raf.length()];
-            raf.readFully(data);
-            final Memory memory = new DefaultMemory(data);
-            final FormChunk formchunk = new DefaultFormChunk(memory);
+            final FormChunk formchunk = new DefaultFormChunk(mapFile(blorbfile));
             return new BlorbResources(formchunk);
         } catch (IOException ex) {
             ex.printStackTrace();
-        } finally {
-            if (raf != null) {
-                try {
-                    raf.close();
-                } catch (Exception ex) {
-                    ex.printStackTrace(System.err);
-                }
-            }
         }
         return null;
     }
 
+    /**
+     * Maps the specified file read-only into memory. The data is not copied
+     * onto the heap, the operating system pages it in on access. The mapping
+     * stays valid after this method closed the file.
+     *
+     * @param file the file
+     * @return the memory, which rejects writes
+     * @throws IOException if the file can not be mapped
+     */
+    public static Memory mapFile(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            return new ByteBufferMemory(channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
     /**
      * Reads an array of bytes from the given input stream.
      *
@@ -91,18 +99,13 @@ public class FileUtils {
         }
 
         try {
-            final List<Byte> buffer = new ArrayList<Byte>();
-            int databyte = 0;
-            do {
-                databyte = inputstream.read();
-                if (databyte != -1) {
-                    buffer.add((byte) databyte);
-                }
-            } while (databyte != -1);
-            data = new byte[buffer.size()];
-            for (int i = 0; i < buffer.size(); i++) {
-                data[i] = buffer.get(i);
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final byte[] block = new byte[8192];
+            int numBytes;
+            while ((numBytes = inputstream.read(block)) != -1) {
+                buffer.write(block, 0, numBytes);
             }
+            data = buffer.toByteArray();
         } catch (IOException ex) {
             ex.printStackTrace();
         } finally {
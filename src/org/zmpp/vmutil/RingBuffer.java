@@ -108,10 +108,45 @@ public class RingBuffer<T> {
             elements[idx1] = elements[idx2];
         }
         size--;
-        bufferend = (bufferend - 1) % elements.length;
+        bufferend = (bufferend + elements.length - 1) % elements.length;
         return elem;
     }
 
+    /**
+     * Removes the oldest element in constant time.
+     *
+     * @return the removed element
+     */
+    public T removeFirst() {
+        final T elem = elements[bufferstart];
+        elements[bufferstart] = null;
+        bufferstart = (bufferstart + 1) % elements.length;
+        size--;
+        return elem;
+    }
+
+    /**
+     * Removes the latest element in constant time.
+     *
+     * @return the removed element
+     */
+    public T removeLast() {
+        bufferend = (bufferend + elements.length - 1) % elements.length;
+        final T elem = elements[bufferend];
+        elements[bufferend] = null;
+        size--;
+        return elem;
+    }
+
+    /**
+     * Returns the maximum number of elements.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return elements.length;
+    }
+
     /**
      * Maps a container index to a ring buffer index.
      *
@@ -0,0 +1,141 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.base;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the turn and entry limits of the WriteJournal.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class WriteJournalTest {
+
+    /**
+     * Writes a value and records it, like a CopyOnWriteMemory does.
+     */
+    private static void write(final WriteJournal journal, final byte[] data,
+            final int address, final int value) {
+
+        journal.record(address, data[address], (byte) value);
+        data[address] = (byte) value;
+    }
+
+    @Test
+    public void testRevertTurns() {
+
+        final byte[] data = new byte[16];
+        final WriteJournal journal = new WriteJournal(4);
+        write(journal, data, 1, 1);
+        journal.startTurn();
+        write(journal, data, 1, 2);
+        write(journal, data, 2, 3);
+        write(journal, data, 2, 3);                     // not recorded
+        assertEquals(2, journal.getNumTurns());
+        assertEquals(3, journal.getNumEntries());
+        assertEquals(1, journal.getTurnStart(1));
+
+        journal.revertTurn(new DefaultMemory(data));
+        assertEquals(1, data[1]);
+        assertEquals(0, data[2]);
+        assertEquals(1, journal.getNumTurns());
+        assertEquals(1, journal.getNumEntries());
+    }
+
+    /**
+     * The oldest turns are discarded, also after the ring buffers wrapped
+     * around and grew.
+     */
+    @Test
+    public void testMaxTurns() {
+
+        final byte[] data = new byte[64];
+        final WriteJournal journal = new WriteJournal(40);
+        for (int turn = 0; turn < 100; turn++) {
+
+            journal.startTurn();
+            for (int i = 0; i < 10; i++) {
+                write(journal, data, i, turn + 1);
+            }
+        }
+        assertEquals(40, journal.getNumTurns());
+        assertEquals(400, journal.getNumEntries());
+        for (int turn = 0; turn < 40; turn++) {
+
+            assertEquals(turn * 10, journal.getTurnStart(turn));
+            assertEquals(turn * 10 + 10, journal.getTurnEnd(turn));
+            assertEquals(61 + turn, journal.getNewValue(turn * 10));
+        }
+        final DefaultMemory memory = new DefaultMemory(data);
+        for (int turn = 0; turn < 39; turn++) {
+            journal.revertTurn(memory);
+        }
+        assertEquals(61, data[0]);
+    }
+
+    @Test
+    public void testEntryBudget() {
+
+        final byte[] data = new byte[16];
+        final WriteJournal journal = new WriteJournal(8, 4);
+        write(journal, data, 0, 1);
+        write(journal, data, 1, 1);
+        write(journal, data, 2, 1);
+        journal.startTurn();
+        write(journal, data, 3, 1);
+        write(journal, data, 4, 1);
+        assertEquals(1, journal.getNumTurns());
+        assertEquals(2, journal.getNumEntries());
+        assertEquals(3, journal.getAddress(0));
+        assertFalse(journal.isTruncated());
+    }
+
+    /**
+     * A turn that exceeds the budget on its own can not be reverted and is
+     * discarded when the next turn starts.
+     */
+    @Test
+    public void testTruncatedTurn() {
+
+        final byte[] data = new byte[16];
+        final WriteJournal journal = new WriteJournal(8, 2);
+        write(journal, data, 0, 1);
+        journal.startTurn();
+        write(journal, data, 1, 1);
+        write(journal, data, 2, 1);
+        write(journal, data, 3, 1);
+        assertTrue(journal.isTruncated());
+        assertEquals(1, journal.getNumTurns());
+        assertEquals(0, journal.getNumEntries());
+        try {
+
+            journal.revertTurn(new DefaultMemory(data));
+            fail("a truncated turn was reverted");
+        } catch (IllegalStateException expected) {
+        }
+        journal.startTurn();
+        assertFalse(journal.isTruncated());
+        write(journal, data, 4, 1);
+        journal.revertTurn(new DefaultMemory(data));
+        assertEquals(0, data[4]);
+        assertEquals(1, data[3]);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.zmpp.headless.HeadlessGame;
+import org.zmpp.headless.HeadlessMachineFactory;
+import org.zmpp.vm.Cpu;
+import org.zmpp.vm.Cpu.RunStatus;
+import org.zmpp.vm.InstructionDecoder;
+import org.zmpp.vm.StoryAssembler;
+import static org.junit.Assert.*;
+import static org.zmpp.vm.StoryAssembler.*;
+
+/**
+ * Tests the BlockCompiler.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class BlockCompilerTest {
+
+    /**
+     * A block that runs into the end of the story file executes its
+     * instructions before the program counter faults.
+     */
+    @Test
+    public void testBlockAtEnd() throws IOException {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(0);
+        story.op2(0x14, 1, 2).store(G0);                // add 1 2 -> G0
+        story.op2(0x14, G0, 1).store(G0);               // add G0 1 -> G0
+        final HeadlessGame game = new HeadlessMachineFactory(
+                story.finish(routine), null) {
+
+            @Override
+            protected InstructionDecoder createInstructionDecoder() {
+
+                return new BlockCompiler(new DefaultInstructionDecoder());
+            }
+        }.buildGame();
+        game.getMachine().start();
+        assertEquals(RunStatus.FAULT, game.run(1000));
+        final Cpu cpu = game.getMachine().getCpu();
+        assertEquals(4, cpu.getVariable(0x10));
+        assertTrue(cpu.getFault().getMessage(),
+                cpu.getFault().getMessage().contains("outside of the story"));
+    }
+}
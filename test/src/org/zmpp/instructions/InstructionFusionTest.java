@@ -0,0 +1,53 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.instructions;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.zmpp.headless.HeadlessGame;
+import org.zmpp.headless.HeadlessMachineFactory;
+import org.zmpp.vm.Cpu.RunStatus;
+import org.zmpp.vm.StoryAssembler;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the instruction fusion of the DefaultInstructionDecoder.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class InstructionFusionTest {
+
+    /**
+     * An instruction that can start a fused pair as the last instruction of
+     * the story file is executed on its own.
+     */
+    @Test
+    public void testFusableInstructionAtEnd() throws IOException {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(1);
+        story.op2(0x05, 1, 0).branchReturn(true, true);  // inc_chk L0 0 ?rtrue
+        final HeadlessGame game = new HeadlessMachineFactory(
+                story.finish(routine), null).buildGame();
+        game.getMachine().start();
+        assertEquals(RunStatus.HALTED, game.run(1000));
+        assertNull(game.getMachine().getCpu().getFault());
+    }
+}
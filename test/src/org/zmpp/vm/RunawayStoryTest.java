@@ -0,0 +1,181 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.zmpp.headless.HeadlessGame;
+import org.zmpp.headless.HeadlessMachineFactory;
+import org.zmpp.instructions.BlockCompiler;
+import org.zmpp.instructions.DefaultInstructionDecoder;
+import org.zmpp.instructions.OpcodeProfiler;
+import org.zmpp.vm.Cpu.RunStatus;
+import static org.junit.Assert.*;
+import static org.zmpp.vm.StoryAssembler.*;
+
+/**
+ * Runs stories that push without popping, recurse without end or jump out
+ * of the story file and checks that they end in a fault instead of an exception.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class RunawayStoryTest {
+
+    private static final int MAX_STEPS = 1000000;
+
+    // ***********************************************************************
+    // ****** Test data
+    // ***************************************************
+
+    private static byte[] createPushLoop() {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(0);
+        story.label("loop");
+        story.var(0x08, 1);                             // push 1
+        story.jump("loop");
+        return story.finish(routine);
+    }
+
+    private static byte[] createRecursion() {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(0);
+        story.var(0x19, story.packed(routine));         // call_vn
+        story.op0(0x00);                                // rtrue
+        return story.finish(routine);
+    }
+
+    private static byte[] createJump(final int offset) {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(0);
+        story.op1(0x0c, offset);                        // jump
+        return story.finish(routine);
+    }
+
+    // ***********************************************************************
+    // ****** Tests
+    // ***************************************************
+
+    @Test
+    public void testStackOverflow() throws IOException {
+
+        assertFault(createPushLoop(), new DefaultInstructionDecoder(),
+                "stack overflow");
+    }
+
+    @Test
+    public void testEndlessRecursion() throws IOException {
+
+        assertFault(createRecursion(), new DefaultInstructionDecoder(),
+                "call depth");
+    }
+
+    @Test
+    public void testNegativeProgramCounter() throws IOException {
+
+        assertFault(createJump(0x8000),
+                new DefaultInstructionDecoder(), "outside of the story");
+    }
+
+    @Test
+    public void testProgramCounterPastEnd() throws IOException {
+
+        assertFault(createJump(0x7fff),
+                new DefaultInstructionDecoder(), "outside of the story");
+    }
+
+    @Test
+    public void testStackOverflowBlockCompiler() throws IOException {
+
+        assertFault(createPushLoop(),
+                new BlockCompiler(new DefaultInstructionDecoder()),
+                "stack overflow");
+    }
+
+    @Test
+    public void testNegativeProgramCounterBlockCompiler() throws IOException {
+
+        assertFault(createJump(0x8000),
+                new BlockCompiler(new DefaultInstructionDecoder()),
+                "outside of the story");
+    }
+
+    @Test
+    public void testNegativeProgramCounterProfiler() throws IOException {
+
+        assertFault(createJump(0x8000),
+                new OpcodeProfiler(new DefaultInstructionDecoder()),
+                "outside of the story");
+    }
+
+    @Test
+    public void testProgramCounterPastEndProfiler() throws IOException {
+
+        assertFault(createJump(0x7fff),
+                new OpcodeProfiler(new DefaultInstructionDecoder()),
+                "outside of the story");
+    }
+
+    // ***********************************************************************
+    // ****** Helpers
+    // ***************************************************
+
+    /**
+     * Builds a game for the story with the specified decoder.
+     *
+     * @param storydata the story file
+     * @param decoder the instruction decoder
+     * @return the game
+     */
+    static HeadlessGame buildGame(final byte[] storydata,
+            final InstructionDecoder decoder) throws IOException {
+
+        return new HeadlessMachineFactory(storydata, null) {
+
+            @Override
+            protected InstructionDecoder createInstructionDecoder() {
+
+                return decoder;
+            }
+        }.buildGame();
+    }
+
+    /**
+     * Runs the story and checks that it stops with a fault.
+     *
+     * @param storydata the story file
+     * @param decoder the instruction decoder
+     * @param message a part of the expected fault message
+     */
+    static void assertFault(final byte[] storydata,
+            final InstructionDecoder decoder, final String message)
+            throws IOException {
+
+        final HeadlessGame game = buildGame(storydata, decoder);
+        game.getMachine().start();
+        assertEquals(RunStatus.FAULT, game.run(MAX_STEPS));
+        final MachineFault fault = game.getMachine().getCpu().getFault();
+        assertFalse(game.isRunning());
+        assertNotNull(fault);
+        assertTrue(fault.getMessage(), fault.getMessage().contains(message));
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembles small version 5 story files for the tests. The main program at
+ * the start of the code area calls the routine passed to finish() and quits,
+ * the routines follow in the order they are written, so the story file ends
+ * with the last instruction of the last routine.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class StoryAssembler {
+
+    /**
+     * Variable operands are marked by a flag above the 16 bit range.
+     */
+    public static final int VARIABLE = 0x10000;
+
+    /**
+     * The stack variable.
+     */
+    public static final int SP = VARIABLE;
+
+    /**
+     * The first local variable.
+     */
+    public static final int L0 = VARIABLE | 1;
+
+    /**
+     * The second local variable.
+     */
+    public static final int L1 = VARIABLE | 2;
+
+    /**
+     * The first global variable.
+     */
+    public static final int G0 = VARIABLE | 0x10;
+
+    /**
+     * The start of static memory.
+     */
+    public static final int STATICS = 0x520;
+
+    private static final int ABBREVIATIONS = 0x40;
+    private static final int OBJECT_TABLE = 0x100;
+    private static final int GLOBALS = 0x240;
+    private static final int CODE = 0x528;
+
+    private static final int TYPE_LARGE = 0;
+    private static final int TYPE_SMALL = 1;
+    private static final int TYPE_VARIABLE = 2;
+    private static final int TYPE_OMITTED = 3;
+
+    private final byte[] data = new byte[0x10000];
+    private int pc;
+    private final Map<String, Integer> labels = new HashMap<String, Integer>();
+    private final List<Integer> branchOffsets = new ArrayList<Integer>();
+    private final List<String> branchLabels = new ArrayList<String>();
+    private final List<Integer> jumpOffsets = new ArrayList<Integer>();
+    private final List<String> jumpLabels = new ArrayList<String>();
+
+    /**
+     * Constructor, writes the main program.
+     */
+    public StoryAssembler() {
+
+        pc = CODE;
+        var(0x19, 0xffff);                              // call_vn, patched
+        op0(0x0a);                                      // quit
+    }
+
+    /**
+     * Starts a routine.
+     *
+     * @param numLocals the number of local variables
+     * @return the routine address
+     */
+    public int routine(final int numLocals) {
+
+        while (pc % 4 != 0) {
+            pc++;
+        }
+        final int address = pc;
+        data[pc++] = (byte) numLocals;
+        return address;
+    }
+
+    /**
+     * Returns the packed address of a routine.
+     *
+     * @param routineAddress the routine address
+     * @return the packed address
+     */
+    public int packed(final int routineAddress) {
+
+        return routineAddress / 4;
+    }
+
+    /**
+     * Defines a label at the current address.
+     *
+     * @param name the label
+     */
+    public void label(final String name) {
+
+        labels.put(name, pc);
+    }
+
+    /**
+     * Returns the current address.
+     *
+     * @return the address of the next instruction
+     */
+    public int getAddress() {
+
+        return pc;
+    }
+
+    /**
+     * Appends a 0OP instruction.
+     *
+     * @param opcode the opcode
+     * @return this object
+     */
+    public StoryAssembler op0(final int opcode) {
+
+        data[pc++] = (byte) (0xb0 | opcode);
+        return this;
+    }
+
+    /**
+     * Appends a 1OP instruction.
+     *
+     * @param opcode the opcode
+     * @param operand the operand
+     * @return this object
+     */
+    public StoryAssembler op1(final int opcode, final int operand) {
+
+        data[pc++] = (byte) (0x80 | (getType(operand) << 4) | opcode);
+        writeOperand(operand);
+        return this;
+    }
+
+    /**
+     * Appends a 2OP instruction.
+     *
+     * @param opcode the opcode
+     * @param operand1 the first operand
+     * @param operand2 the second operand
+     * @return this object
+     */
+    public StoryAssembler op2(final int opcode, final int operand1,
+            final int operand2) {
+
+        final int type1 = getType(operand1);
+        final int type2 = getType(operand2);
+        if (type1 == TYPE_LARGE || type2 == TYPE_LARGE) {
+
+            data[pc++] = (byte) (0xc0 | opcode);
+            data[pc++] = (byte) ((type1 << 6) | (type2 << 4)
+                    | (TYPE_OMITTED << 2) | TYPE_OMITTED);
+        } else {
+
+            data[pc++] = (byte) (((type1 == TYPE_VARIABLE) ? 0x40 : 0)
+                    | ((type2 == TYPE_VARIABLE) ? 0x20 : 0) | opcode);
+        }
+        writeOperand(operand1);
+        writeOperand(operand2);
+        return this;
+    }
+
+    /**
+     * Appends a VAR instruction.
+     *
+     * @param opcode the opcode
+     * @param operands the operands
+     * @return this object
+     */
+    public StoryAssembler var(final int opcode, final int... operands) {
+
+        data[pc++] = (byte) (0xe0 | opcode);
+        int types = 0;
+        for (int i = 0; i < 4; i++) {
+
+            types = (types << 2)
+                    | ((i < operands.length) ? getType(operands[i])
+                    : TYPE_OMITTED);
+        }
+        data[pc++] = (byte) types;
+        for (int operand : operands) {
+            writeOperand(operand);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a jump to the specified label.
+     *
+     * @param label the label
+     * @return this object
+     */
+    public StoryAssembler jump(final String label) {
+
+        data[pc++] = (byte) 0x8c;
+        jumpOffsets.add(pc);
+        jumpLabels.add(label);
+        pc += 2;
+        return this;
+    }
+
+    /**
+     * Appends the store variable of the previous instruction.
+     *
+     * @param variable the variable
+     * @return this object
+     */
+    public StoryAssembler store(final int variable) {
+
+        data[pc++] = (byte) (variable & 0xff);
+        return this;
+    }
+
+    /**
+     * Appends a two byte branch to the specified label.
+     *
+     * @param label the label
+     * @param branchOnTrue true to branch if the condition is true
+     * @return this object
+     */
+    public StoryAssembler branch(final String label,
+            final boolean branchOnTrue) {
+
+        data[pc] = (byte) (branchOnTrue ? 0x80 : 0);
+        branchOffsets.add(pc);
+        branchLabels.add(label);
+        pc += 2;
+        return this;
+    }
+
+    /**
+     * Appends a one byte branch that returns from the routine.
+     *
+     * @param branchOnTrue true to branch if the condition is true
+     * @param value the return value, true or false
+     * @return this object
+     */
+    public StoryAssembler branchReturn(final boolean branchOnTrue,
+            final boolean value) {
+
+        data[pc++] = (byte) ((branchOnTrue ? 0xc0 : 0x40) | (value ? 1 : 0));
+        return this;
+    }
+
+    /**
+     * Resolves the branches and jumps and lays out the rest of the story.
+     *
+     * @param routine the routine the main program calls
+     * @return the story file data
+     */
+    public byte[] finish(final int routine) {
+
+        for (int i = 0; i < branchOffsets.size(); i++) {
+
+            final int address = branchOffsets.get(i);
+            final int offset = labels.get(branchLabels.get(i)) - address;
+            data[address] |= (byte) ((offset >> 8) & 0x3f);
+            data[address + 1] = (byte) (offset & 0xff);
+        }
+        for (int i = 0; i < jumpOffsets.size(); i++) {
+
+            final int address = jumpOffsets.get(i);
+            writeWord(address, labels.get(jumpLabels.get(i)) - address);
+        }
+        writeWord(CODE + 2, packed(routine));
+        data[0x00] = 5;
+        writeWord(0x04, CODE);
+        writeWord(0x06, CODE);
+        writeWord(0x08, STATICS);
+        writeWord(0x0a, OBJECT_TABLE);
+        writeWord(0x0c, GLOBALS);
+        writeWord(0x0e, STATICS);
+        writeWord(0x18, ABBREVIATIONS);
+        writeWord(0x1a, pc / 4);
+
+        // Dictionary without separators and words
+        data[STATICS + 1] = 9;
+        return Arrays.copyOf(data, pc);
+    }
+
+    private int getType(final int operand) {
+
+        if ((operand & VARIABLE) != 0) {
+            return TYPE_VARIABLE;
+        }
+        return (operand >= 0 && operand <= 0xff) ? TYPE_SMALL : TYPE_LARGE;
+    }
+
+    private void writeOperand(final int operand) {
+
+        if (getType(operand) == TYPE_LARGE) {
+
+            writeWord(pc, operand);
+            pc += 2;
+        } else {
+            data[pc++] = (byte) (operand & 0xff);
+        }
+    }
+
+    private void writeWord(final int address, final int value) {
+
+        data[address] = (byte) ((value >> 8) & 0xff);
+        data[address + 1] = (byte) (value & 0xff);
+    }
+}
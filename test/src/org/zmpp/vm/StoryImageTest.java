@@ -0,0 +1,87 @@
+/*
+ * Created on 2026/10/18
+ * Copyright 2026 by agent
+ * This file is part of The Z-machine Preservation Project (ZMPP).
+ *
+ * ZMPP is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ZMPP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with ZMPP.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.zmpp.vm;
+
+import java.io.IOException;
+import org.junit.Test;
+import org.zmpp.headless.HeadlessGame;
+import org.zmpp.headless.HeadlessMachineFactory;
+import org.zmpp.vm.Cpu.RunStatus;
+import static org.junit.Assert.*;
+import static org.zmpp.vm.StoryAssembler.*;
+
+/**
+ * Tests the data that a StoryImage shares between machines.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public class StoryImageTest {
+
+    /**
+     * The dictionary in static memory is shared, but refers neither to the
+     * memory nor to the decoder of the machine that asked for it first.
+     */
+    @Test
+    public void testSharedDictionary() {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(0);
+        story.op0(0x00);                                // rtrue
+        final StoryImage image = new StoryImage(story.finish(routine));
+        final GameData first = new GameDataImpl(image, null);
+        final GameData second = new GameDataImpl(image, null);
+
+        final AbstractDictionary dictionary
+                = (AbstractDictionary) first.getDictionary();
+        assertSame(dictionary, second.getDictionary());
+        assertNotSame(first.getMemory(), dictionary.getMemory());
+        assertNotSame(first.getZCharDecoder(), dictionary.getDecoder());
+        assertEquals(9, dictionary.getEntryLength());
+    }
+
+    /**
+     * If the story may write to static memory, a routine header that it
+     * rewrites between two calls is decoded again: after the number of local
+     * variables is reduced to 1, the second local variable does not exist.
+     */
+    @Test
+    public void testRewrittenRoutineHeader() throws IOException {
+
+        final StoryAssembler story = new StoryAssembler();
+        final int routine = story.routine(2);
+        story.op1(0x0b, L1);                            // ret L1
+        final int main = story.routine(0);
+        story.var(0x00, story.packed(routine), 7, 9).store(G0); // call_vs
+        story.var(0x02, routine, 0, 1);                 // storeb
+        story.var(0x00, story.packed(routine), 7, 9).store(G0); // call_vs
+        story.op0(0x00);                                // rtrue
+        final StoryImage image = new StoryImage(story.finish(main));
+        image.setStaticWritable(true);
+
+        final HeadlessGame game
+                = new HeadlessMachineFactory(image, null).buildGame();
+        game.getMachine().start();
+        assertEquals(RunStatus.FAULT, game.run(1000));
+        final Cpu cpu = game.getMachine().getCpu();
+        assertEquals(9, cpu.getVariable(0x10));
+        assertTrue(cpu.getFault().getMessage(),
+                cpu.getFault().getMessage().contains("local variable: 1"));
+    }
+}